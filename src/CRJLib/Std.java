@@ -43,7 +43,6 @@ public class Std
     //
     private final Scanner      SCAN    = new Scanner( System.in );
     private final Random       RANDOM  = new Random();
-    private final SecureRandom SRANDOM = new SecureRandom();
     //
     // final accessable assets
     public final Malloc   mem    = new Malloc();
@@ -51,6 +50,7 @@ public class Std
     public final PHash    phash  = new PHash();
     public final Terminal term   = new Terminal();
     public final Parse    pars   = new Parse();
+    public final Fmt      fmt    = new Fmt();
     public final Str      str    = new Str();
     public final Scimat   sim    = new Scimat();
     public final FIO      fi     = new FIO();
@@ -122,20 +122,20 @@ public class Std
     int srand(int min, int max)
     {
         if (max-min > 0)
-            return SRANDOM.nextInt(max-min)+min;
+            return SRand.next_int(max-min)+min;
         else 
             return min;
     }
     //
     /**************************************************************** 
      * 
-     * @return instance of SecureRandom class (from java.security.*)
+     * @return this thread's SecureRandom (a per-thread DRBG from SRand)
     */
     //
     public 
     SecureRandom get_srand()
     {
-        return this.SRANDOM;
+        return SRand.get();
     }
 
 
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2025 CJ Remillard
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package CRJLib.assets;
+
+import java.lang.ref.WeakReference;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+//
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+
+/**
+ * CPool class caches JCE primitives per thread so that hot paths skip the
+ * synchronized provider lookup and allocation behind getInstance.
+ * Jcrypt and PHash both draw from it.
+ * 
+ * Features:
+ * - Thread-local Cipher, Mac and MessageDigest instances
+ * - Mac instances remember their last key weakly and only reset when it
+ *   is unchanged; the pool holds no reference to a caller's Key, though
+ *   a pooled Mac keeps its HMAC pad state until its next init
+ * - Hit/miss counters for sizing and flame-graph comparisons
+ * 
+ * An instance is owned by the calling thread until that thread asks for
+ * the same algorithm again. Callers must fully initialise a Cipher before
+ * each use, and must not keep one across calls that may reuse it, e.g. a
+ * long-lived stream object should create its own.
+ * 
+ * @author CJ Remillard
+ * @version 1.0
+ */
+public class CPool 
+{
+    // FIELDS //
+    //
+    private static final ThreadLocal<HashMap<String, Cipher>>           CIPHERS   = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<HashMap<String, Mac>>              MACS      = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<HashMap<String, MessageDigest>>    DIGESTS   = ThreadLocal.withInitial(HashMap::new);
+    /** Last key each pooled Mac was initialised with, held weakly */
+    private static final ThreadLocal<HashMap<Mac, WeakReference<Key>>>  MAC_KEYS  = ThreadLocal.withInitial(HashMap::new);
+    //
+    private static final LongAdder HITS   = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+
+    /**
+     * Get this thread's Cipher for a transformation, creating it on first use.
+     * The cipher must be initialised with init() before every use.
+     * 
+     * @param transformation e.g. "AES/GCM/NoPadding"
+     * @return Pooled Cipher
+     * @throws GeneralSecurityException If the transformation is unavailable
+     */
+    public static 
+    Cipher cipher(String transformation) 
+    throws GeneralSecurityException
+    {
+        HashMap<String, Cipher> m = CIPHERS.get();
+        Cipher c = m.get(transformation);
+        if (c != null)
+        {
+            HITS.increment();
+            return c;
+        }
+        MISSES.increment();
+        c = Cipher.getInstance(transformation);
+        m.put(transformation, c);
+        return c;
+    }
+
+    /**
+     * Get this thread's Mac for an algorithm, initialised with key.
+     * Re-initialisation is skipped when the key is the one used last time;
+     * the Mac is reset instead.
+     * 
+     * @param algo e.g. "HmacSHA256"
+     * @param key MAC key
+     * @return Pooled, ready-to-use Mac
+     * @throws GeneralSecurityException If the algorithm is unavailable or the key invalid
+     */
+    public static 
+    Mac mac(String algo, Key key) 
+    throws GeneralSecurityException
+    {
+        HashMap<String, Mac> m = MACS.get();
+        Mac mac = m.get(algo);
+        if (mac == null)
+        {
+            MISSES.increment();
+            mac = Mac.getInstance(algo);
+            m.put(algo, mac);
+        } else 
+        {
+            HITS.increment();
+        }
+
+        HashMap<Mac, WeakReference<Key>> keys = MAC_KEYS.get();
+        WeakReference<Key> last = keys.get(mac);
+        if (last != null && last.get() == key)
+        {
+            mac.reset();
+        } else 
+        {
+            mac.init(key);
+            keys.put(mac, new WeakReference<>(key));
+        }
+        return mac;
+    }
+
+    /**
+     * Get this thread's MessageDigest for an algorithm, reset and ready.
+     * 
+     * @param algo e.g. "SHA-256"
+     * @return Pooled MessageDigest
+     * @throws NoSuchAlgorithmException If the algorithm is unavailable
+     */
+    public static 
+    MessageDigest md(String algo) 
+    throws NoSuchAlgorithmException
+    {
+        HashMap<String, MessageDigest> m = DIGESTS.get();
+        MessageDigest md = m.get(algo);
+        if (md != null)
+        {
+            HITS.increment();
+            md.reset();
+            return md;
+        }
+        MISSES.increment();
+        md = MessageDigest.getInstance(algo);
+        m.put(algo, md);
+        return md;
+    }
+
+    /**
+     * @return Requests served from a thread's pool
+     */
+    public static 
+    long hits()
+    {
+        return HITS.sum();
+    }
+
+    /**
+     * @return Requests that had to call getInstance
+     */
+    public static 
+    long misses()
+    {
+        return MISSES.sum();
+    }
+
+    /**
+     * Reset the hit and miss counters.
+     */
+    public static 
+    void reset_stats()
+    {
+        HITS.reset();
+        MISSES.reset();
+    }
+}
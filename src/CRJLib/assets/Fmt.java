@@ -0,0 +1,604 @@
+/*
+ * Copyright (c) 2025 CJ Remillard
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package CRJLib.assets;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Fmt utility class for writing numbers as ASCII text, the inverse of
+ * Parse. Every method writes straight into a caller's byte[], ByteBuffer
+ * or Malloc memory and returns the number of bytes written, so a
+ * serialization loop allocates nothing.
+ * 
+ * Features:
+ * - int and long to decimal, two digits per step
+ * - Shortest round-trip double to decimal (Schubfach)
+ * - byte[], ByteBuffer and Malloc targets
+ * - Exact output lengths (len_int, len_long) for sizing buffers
+ * 
+ * Doubles use the layout of Double.toString: plain notation for
+ * 10^-3 <= |v| < 10^7, computerized scientific notation otherwise, and
+ * NaN, Infinity, -Infinity, 0.0 and -0.0 as written there. The digits are
+ * the fewest that parse back to the same double (two when one would do),
+ * closest to the exact value, as specified for toString from JDK 19 on;
+ * Java 17's toString sometimes prints more, e.g. 9.999999999999999E22 for 1e23.
+ * 
+ * @author CJ Remillard
+ * @version 1.0
+ */
+public class Fmt 
+{
+    // FIELDS //
+    //
+    /** Longest int, long and double text, including a sign */
+    public static final int MAX_INT    = 11;
+    public static final int MAX_LONG   = 20;
+    public static final int MAX_DOUBLE = 24;
+
+    /** "00" to "99" as byte pairs */
+    private static final byte[] PAIRS = pairs();
+
+    /** Per-thread staging for targets too small to write into directly */
+    private static final ThreadLocal<byte[]> TMP = ThreadLocal.withInitial(() -> new byte[32]);
+
+
+    // INTEGERS //
+    //
+    /**
+     * Writes an int as decimal text.
+     * 
+     * @param b Target array
+     * @param off Offset of the first byte
+     * @param v Value to write
+     * @return Bytes written
+     * @throws IndexOutOfBoundsException if the text does not fit
+     * 
+     * Example:
+     * put_int(b, 0, -42) - Writes "-42", returns 3
+     */
+    public 
+    int put_int(byte[] b, int off, int v)
+    {
+        int n = len_int(v);
+        Objects.checkFromIndexSize(off, n, b.length);
+        write_int(v, b, off + n);
+        return n;
+    }
+
+    /**
+     * Writes a long as decimal text.
+     * 
+     * @param b Target array
+     * @param off Offset of the first byte
+     * @param v Value to write
+     * @return Bytes written
+     * @throws IndexOutOfBoundsException if the text does not fit
+     */
+    public 
+    int put_long(byte[] b, int off, long v)
+    {
+        int n = len_long(v);
+        Objects.checkFromIndexSize(off, n, b.length);
+        write_long(v, b, off + n);
+        return n;
+    }
+
+    /**
+     * Writes an int at the buffer's position and advances it.
+     * 
+     * @param bb Target buffer
+     * @param v Value to write
+     * @return Bytes written
+     * @throws java.nio.BufferOverflowException if the text does not fit
+     */
+    public 
+    int put_int(ByteBuffer bb, int v)
+    {
+        int n = len_int(v);
+        byte[] t = TMP.get();
+        bb.put(t, write_int(v, t, n), n);
+        return n;
+    }
+
+    /**
+     * Writes a long at the buffer's position and advances it.
+     * 
+     * @param bb Target buffer
+     * @param v Value to write
+     * @return Bytes written
+     * @throws java.nio.BufferOverflowException if the text does not fit
+     */
+    public 
+    int put_long(ByteBuffer bb, long v)
+    {
+        int n = len_long(v);
+        byte[] t = TMP.get();
+        bb.put(t, write_long(v, t, n), n);
+        return n;
+    }
+
+    /**
+     * Writes an int to Malloc memory.
+     * 
+     * @param m Allocator that owns the memory
+     * @param p Address of the first byte; MAX_INT bytes are always enough
+     * @param v Value to write
+     * @return Bytes written
+     */
+    public 
+    int put_int(Malloc m, long p, int v)
+    {
+        int n = len_int(v);
+        byte[] t = TMP.get();
+        put(m, p, t, write_int(v, t, n), n);
+        return n;
+    }
+
+    /**
+     * Writes a long to Malloc memory.
+     * 
+     * @param m Allocator that owns the memory
+     * @param p Address of the first byte; MAX_LONG bytes are always enough
+     * @param v Value to write
+     * @return Bytes written
+     */
+    public 
+    int put_long(Malloc m, long p, long v)
+    {
+        int n = len_long(v);
+        byte[] t = TMP.get();
+        put(m, p, t, write_long(v, t, n), n);
+        return n;
+    }
+
+    /**
+     * @param v Value
+     * @return Length of v as decimal text, including a '-'
+     */
+    public 
+    int len_int(int v)
+    {
+        int d = 1;
+        if (v >= 0)
+        {
+            d = 0;
+            v = -v;
+        }
+        int p = -10;
+        for (int i = 1; i < 10; i++)
+        {
+            if (v > p)
+                return i + d;
+            p = 10 * p;
+        }
+        return 10 + d;
+    }
+
+    /**
+     * @param v Value
+     * @return Length of v as decimal text, including a '-'
+     */
+    public 
+    int len_long(long v)
+    {
+        int d = 1;
+        if (v >= 0)
+        {
+            d = 0;
+            v = -v;
+        }
+        long p = -10;
+        for (int i = 1; i < 19; i++)
+        {
+            if (v > p)
+                return i + d;
+            p = 10 * p;
+        }
+        return 19 + d;
+    }
+
+
+    // DOUBLES //
+    //
+    /**
+     * Writes the shortest decimal text that parses back to v.
+     * 
+     * @param b Target array
+     * @param off Offset of the first byte
+     * @param v Value to write
+     * @return Bytes written
+     * @throws IndexOutOfBoundsException if the text does not fit
+     * 
+     * Example:
+     * put_double(b, 0, 0.1 + 0.2) - Writes "0.30000000000000004"
+     * put_double(b, 0, 2e-3)      - Writes "0.002"
+     * put_double(b, 0, 1e21)      - Writes "1.0E21"
+     */
+    public 
+    int put_double(byte[] b, int off, double v)
+    {
+        if (off >= 0 && b.length - off >= MAX_DOUBLE)
+            return dtoa(v, b, off);
+        byte[] t = TMP.get();
+        int n = dtoa(v, t, 0);
+        Objects.checkFromIndexSize(off, n, b.length);
+        System.arraycopy(t, 0, b, off, n);
+        return n;
+    }
+
+    /**
+     * Writes the shortest round-trip text of v at the buffer's position
+     * and advances it.
+     * 
+     * @param bb Target buffer
+     * @param v Value to write
+     * @return Bytes written
+     * @throws java.nio.BufferOverflowException if the text does not fit
+     */
+    public 
+    int put_double(ByteBuffer bb, double v)
+    {
+        int pos = bb.position();
+        if (bb.hasArray() && bb.remaining() >= MAX_DOUBLE)
+        {
+            int n = dtoa(v, bb.array(), bb.arrayOffset() + pos);
+            bb.position(pos + n);
+            return n;
+        }
+        byte[] t = TMP.get();
+        int n = dtoa(v, t, 0);
+        bb.put(t, 0, n);
+        return n;
+    }
+
+    /**
+     * Writes the shortest round-trip text of v to Malloc memory.
+     * 
+     * @param m Allocator that owns the memory
+     * @param p Address of the first byte; MAX_DOUBLE bytes are always enough
+     * @param v Value to write
+     * @return Bytes written
+     */
+    public 
+    int put_double(Malloc m, long p, double v)
+    {
+        byte[] t = TMP.get();
+        int n = dtoa(v, t, 0);
+        put(m, p, t, 0, n);
+        return n;
+    }
+
+
+    // INTEGER CORE //
+    //
+    // Digits are produced right to left from the negated value, so
+    // MIN_VALUE needs no special case.
+    //
+    /** Write v so that its last digit is at end - 1; return the first index. */
+    private static 
+    int write_int(int v, byte[] b, int end)
+    {
+        boolean neg = v < 0;
+        int p = negative_digits(neg ? v : -v, b, end);
+        if (neg)
+            b[--p] = '-';
+        return p;
+    }
+
+    private static 
+    int write_long(long v, byte[] b, int end)
+    {
+        boolean neg = v < 0;
+        if (!neg)
+            v = -v;
+        int p = end;
+        while (v <= Integer.MIN_VALUE)
+        {
+            long q = v / 100;
+            int r = (int) (q * 100 - v);
+            v = q;
+            b[--p] = PAIRS[2 * r + 1];
+            b[--p] = PAIRS[2 * r];
+        }
+        p = negative_digits((int) v, b, p);
+        if (neg)
+            b[--p] = '-';
+        return p;
+    }
+
+    /** Digits of -v for v <= 0, ending at end - 1. */
+    private static 
+    int negative_digits(int v, byte[] b, int end)
+    {
+        int p = end;
+        while (v <= -100)
+        {
+            int q = v / 100;
+            int r = q * 100 - v;
+            v = q;
+            b[--p] = PAIRS[2 * r + 1];
+            b[--p] = PAIRS[2 * r];
+        }
+        if (v <= -10)
+        {
+            b[--p] = PAIRS[-2 * v + 1];
+            b[--p] = PAIRS[-2 * v];
+        } else 
+        {
+            b[--p] = (byte) ('0' - v);
+        }
+        return p;
+    }
+
+
+    // SCHUBFACH //
+    //
+    // Raffaello Giulietti, "The Schubfach way to render doubles" (2020).
+    // The rounding interval of the double is scaled by 10^-k with one
+    // 126-bit multiply per bound, and the shortest decimal inside it is
+    // picked from at most four candidates: s and s + 1, or the multiples
+    // of ten next to them. No loop, no bignum at run time.
+    //
+    /** Smallest binary exponent of a double's integer significand */
+    private static final int  Q_MIN  = -1074;
+    /** Hidden bit of a normal double's significand */
+    private static final long C_MIN  = 1L << 52;
+    /** Subnormal significands below this need one extra digit */
+    private static final long C_TINY = 3;
+    /** Range of k, the decimal scale */
+    private static final int  K_MIN  = -324;
+    private static final int  K_MAX  = 292;
+    private static final long MASK_63 = (1L << 63) - 1;
+    /** g = floor(10^-k * 2^-r) + 1 in [2^125, 2^126], as 63-bit (high, low) pairs */
+    private static final long[] G = scaled_powers_of_ten();
+
+    private static 
+    long[] scaled_powers_of_ten()
+    {
+        long[] t = new long[2 * (K_MAX - K_MIN + 1)];
+        BigInteger mask = BigInteger.valueOf(MASK_63);
+        for (int k = K_MIN; k <= K_MAX; k++)
+        {
+            int e = -k;
+            int sh = 125 - flog2pow10(e);
+            BigInteger g = e >= 0
+                ? BigInteger.TEN.pow(e).shiftLeft(sh)
+                : BigInteger.ONE.shiftLeft(sh).divide(BigInteger.TEN.pow(-e));
+            g = g.add(BigInteger.ONE);
+            int i = 2 * (k - K_MIN);
+            t[i]     = g.shiftRight(63).longValue();
+            t[i + 1] = g.and(mask).longValue();
+        }
+        return t;
+    }
+
+    /** Write the shortest round-trip text of v at b[off]; b has MAX_DOUBLE room. */
+    private static 
+    int dtoa(double v, byte[] b, int off)
+    {
+        long bits = Double.doubleToRawLongBits(v);
+        long t = bits & (C_MIN - 1);
+        int bq = (int) (bits >>> 52) & 0x7ff;
+        if (bq == 0x7ff)
+            return ascii(t != 0 ? "NaN" : bits < 0 ? "-Infinity" : "Infinity", b, off);
+        int p = off;
+        if (bits < 0)
+            b[p++] = '-';
+        if (bq != 0)
+        {
+            int mq = 1075 - bq;
+            long c = C_MIN | t;
+            // Integers below 2^53 are their own shortest decimal
+            if (0 < mq && mq < 53 && (c >> mq) << mq == c)
+                return chars(c >> mq, 0, b, p) - off;
+            return schubfach(-mq, c, 0, b, p) - off;
+        }
+        if (t == 0)
+            return ascii("0.0", b, p) + p - off;
+        return (t < C_TINY ? schubfach(Q_MIN, 10 * t, -1, b, p) : schubfach(Q_MIN, t, 0, b, p)) - off;
+    }
+
+    /**
+     * Pick the decimal for c * 2^q and write it.
+     * 
+     * @param q Binary exponent
+     * @param c Integer significand
+     * @param dk -1 when c was scaled by ten for a tiny subnormal
+     * @return End index
+     */
+    private static 
+    int schubfach(int q, long c, int dk, byte[] b, int p)
+    {
+        int out = (int) c & 1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != C_MIN || q == Q_MIN)
+        {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else 
+        {
+            // Lower neighbour is half as far away at a power of two
+            cbl = cb - 1;
+            k = flog10_three_quarters_pow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+        int i = 2 * (k - K_MIN);
+        long g1 = G[i];
+        long g0 = G[i + 1];
+
+        long vb  = rop(g1, g0, cb << h);
+        long vbl = rop(g1, g0, cbl << h);
+        long vbr = rop(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100)
+        {
+            // A multiple of ten inside the interval is one digit shorter
+            long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin)
+                return chars(upin ? sp10 : tp10, k + dk, b, p);
+        }
+        long tt = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (tt << 2) + out <= vbr;
+        if (uin != win)
+            return chars(uin ? s : tt, k + dk, b, p);
+        // Both inside: the closer one, even on a tie
+        long cmp = vb - (s + tt << 1);
+        return chars(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : tt, k + dk, b, p);
+    }
+
+    /** Round-to-odd of (g1 * 2^63 + g0) * cp / 2^127 */
+    private static 
+    long rop(long g1, long g0, long cp)
+    {
+        long x1 = Math.multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = Math.multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    /** floor(q * log10(2)) */
+    private static 
+    int flog10pow2(int q)
+    {
+        return (int) (q * 661_971_961_083L >> 41);
+    }
+
+    /** floor(q * log10(2) + log10(3/4)) */
+    private static 
+    int flog10_three_quarters_pow2(int q)
+    {
+        return (int) (q * 661_971_961_083L - 274_743_187_321L >> 41);
+    }
+
+    /** floor(e * log2(10)) */
+    private static 
+    int flog2pow10(int e)
+    {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    /**
+     * Lay out f * 10^e (f > 0) in Double.toString's notation.
+     * 
+     * @return End index
+     */
+    private static 
+    int chars(long f, int e, byte[] b, int p)
+    {
+        while (f % 10 == 0)
+        {
+            f /= 10;
+            e++;
+        }
+        int n = len_digits(f);
+        int x = e + n;      // value is 0.d1..dn * 10^x
+        if (0 < x && x <= 7)
+        {
+            if (n <= x)
+            {
+                write_long(f, b, p + n);
+                for (int i = n; i < x; i++)
+                    b[p + i] = '0';
+                b[p + x]     = '.';
+                b[p + x + 1] = '0';
+                return p + x + 2;
+            }
+            write_long(f, b, p + n + 1);
+            System.arraycopy(b, p + 1, b, p, x);
+            b[p + x] = '.';
+            return p + n + 1;
+        }
+        if (-3 < x && x <= 0)
+        {
+            b[p++] = '0';
+            b[p++] = '.';
+            for (int i = x; i < 0; i++)
+                b[p++] = '0';
+            write_long(f, b, p + n);
+            return p + n;
+        }
+        write_long(f, b, p + n + 1);
+        b[p] = b[p + 1];
+        b[p + 1] = '.';
+        int end = p + n + 1;
+        if (n == 1)
+            b[end++] = '0';
+        b[end++] = 'E';
+        int len = x - 1 < 0 ? (x - 1 > -10 ? 2 : x - 1 > -100 ? 3 : 4) : (x - 1 < 10 ? 1 : x - 1 < 100 ? 2 : 3);
+        write_int(x - 1, b, end + len);
+        return end + len;
+    }
+
+    /** Digits in f, 0 < f < 10^18 */
+    private static 
+    int len_digits(long f)
+    {
+        int n = 1;
+        for (long p = 10; p <= f && n < 18; p *= 10)
+            n++;
+        return n;
+    }
+
+
+    // HELPERS //
+    //
+    private static 
+    byte[] pairs()
+    {
+        byte[] t = new byte[200];
+        for (int i = 0; i < 100; i++)
+        {
+            t[2 * i]     = (byte) ('0' + i / 10);
+            t[2 * i + 1] = (byte) ('0' + i % 10);
+        }
+        return t;
+    }
+
+    /** Copy an ASCII literal; return its length. */
+    private static 
+    int ascii(String s, byte[] b, int p)
+    {
+        int n = s.length();
+        for (int i = 0; i < n; i++)
+            b[p + i] = (byte) s.charAt(i);
+        return n;
+    }
+
+    private static 
+    void put(Malloc m, long p, byte[] t, int from, int n)
+    {
+        for (int i = 0; i < n; i++)
+            m.wbyte(p + i, t[from + i]);
+    }
+}
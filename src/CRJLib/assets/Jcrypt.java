@@ -22,14 +22,50 @@
 
 package CRJLib.assets;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
-import javax.crypto.CipherOutputStream;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.*;
-import java.security.spec.KeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.InflaterOutputStream;
 
 /**
  * Jcrypt class provides file encryption and decryption functionality using AES encryption.
@@ -37,11 +73,19 @@ import java.security.spec.KeySpec;
  * and supports both encryption and decryption of files.
  * 
  * Features:
- * - AES encryption/decryption
+ * - AES encryption/decryption with overlapped FileChannel I/O
  * - Password-based key derivation (PBKDF2)
  * - File encryption/decryption
  * - Secure key generation
  * - Automatic file cleanup
+ * - Chunked, authenticated AES-GCM file format with parallel encryption
+ *   and a per-file subkey (HKDF) under each key
+ * - Random-access decryption of byte ranges (GcmReader)
+ * - In-memory (byte[], ByteBuffer, in-place) and stream/channel encryption
+ * - Per-file random salts with a bounded, zeroizable derived-key cache
+ * - Optional compress-then-encrypt (deflate) for chunked files
+ * - Concurrent, resumable batch encryption of directory trees (Batch)
+ * - Cipher, Mac and digest instances pooled per thread (CPool)
  * 
  * @author CJ Remillard
  * @version 1.0
@@ -53,15 +97,32 @@ public class Jcrypt
     /** The encryption algorithm used (AES) */
     public final String ALGO = "AES";
     
+    /** Default I/O buffer size for enc_file and dec_file (1 MiB) */
+    public static final int  IO_BUF = 1 << 20;
+    /** Number of buffers in flight between the read-ahead and cipher threads */
+    private static final int IO_DEPTH = 3;
+    /** PBKDF2 iterations for password-derived keys */
+    public static final int  KDF_ITER = 65536;
+    /** Size of password-derived keys in bits */
+    public static final int  KDF_BITS = 256;
+    /** Default number of derived keys kept by the key cache */
+    public static final int  KEY_CACHE_MAX = 64;
+    /** Default lifetime of a cached derived key in milliseconds (10 minutes) */
+    public static final long KEY_CACHE_TTL = 10 * 60 * 1000L;
+    /** Cache of password-derived keys, shared by every gen_key call on this instance */
+    public final KeyCache keys = new KeyCache(KEY_CACHE_MAX, KEY_CACHE_TTL);
+    
     /**
      * Generate a SecretKey from a password string using PBKDF2.
      * This method creates a cryptographically secure key suitable for AES encryption.
+     * Repeated calls with the same password are served from the key cache.
      * 
      * @param password Password to use for key generation
      * @return AES-compatible SecretKey
      * @throws Exception If key generation fails
      * 
-     * Note: Uses a fixed salt for demonstration. In production, use a unique salt per file.
+     * Note: Uses a fixed salt for compatibility with existing files. New files should use
+     * enc_gcm with a password, which stores a random salt in the file header.
      */
     public  
     SecretKey gen_key(String password) 
@@ -70,13 +131,187 @@ public class Jcrypt
         // Use a consistent salt (for production, consider storing salt with encrypted files)
         byte[] salt = "RandomSalt123".getBytes();
         
-        // Generate PBE key using PBKDF2
-        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, 65536, 256);
-        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-        byte[] keyBytes = factory.generateSecret(spec).getEncoded();
+        char[] pw = password.toCharArray();
+        try 
+        {
+            return gen_key(pw, salt);
+        } finally 
+        {
+            Arrays.fill(pw, '\0');
+        }
+    }
+
+    /**
+     * Generate a SecretKey from a password and salt using PBKDF2-HMAC-SHA256.
+     * The KDF runs once per (password, salt); later calls are served from the
+     * key cache until the entry expires or is evicted.
+     * 
+     * @param password Password to use for key generation
+     * @param salt Salt to use for key generation
+     * @return AES-compatible SecretKey
+     * @throws Exception If key generation fails
+     */
+    public  
+    SecretKey gen_key(char[] password, byte[] salt) 
+    throws Exception 
+    {
+        byte[] id = keys.id(password, salt);
+        SecretKey sk = keys.get(id);
+        if (sk != null)
+            return sk;
+
+        // Generate key bytes using PBKDF2
+        byte[] keyBytes = KDF.pbkdf2(KDF.SHA256, password, salt, KDF_ITER, KDF_BITS);
         
         // Convert to AES key
-        return new SecretKeySpec(keyBytes, "AES");
+        try 
+        {
+            keys.put(id, keyBytes);
+            return new SecretKeySpec(keyBytes, ALGO);
+        } finally 
+        {
+            Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Bounded cache of password-derived key material.
+     * Entries are looked up by HMAC-SHA256 of (password, salt) under a random
+     * key made with the cache and never stored elsewhere, so the cache holds
+     * no password and no unkeyed hash of one: a heap dump without that key
+     * gives nothing cheaper to test guesses against than the KDF itself.
+     * Key bytes are zeroed when an entry expires, is evicted or the cache
+     * is cleared; keys handed out are independent copies.
+     * 
+     * @author CJ Remillard
+     * @version 1.0
+     */
+    public 
+    class KeyCache
+    {
+        // FIELDS //
+        //
+        private final int           MAX;
+        private final long          TTL;
+        private final SecretKeySpec ID_KEY;
+        private final LinkedHashMap<ByteBuffer, byte[]> MAP  = new LinkedHashMap<>(16, 0.75f, true);
+        private final HashMap<ByteBuffer, Long>         BORN = new HashMap<>();
+        private long hits, misses;
+
+
+        /**
+         * Constructs a new KeyCache.
+         * 
+         * @param max Maximum number of keys kept
+         * @param ttl_ms Lifetime of each key in milliseconds
+         */
+        public KeyCache(int max, long ttl_ms)
+        {
+            if (max <= 0 || ttl_ms <= 0)
+                throw new IllegalArgumentException("max: " + max + ", ttl_ms: " + ttl_ms);
+            this.MAX = max;
+            this.TTL = ttl_ms;
+            byte[] k = new byte[32];
+            RNG.nextBytes(k);
+            this.ID_KEY = new SecretKeySpec(k, "HmacSHA256");
+            Arrays.fill(k, (byte) 0);
+        }
+
+
+        /**
+         * Zero and drop every cached key.
+         */
+        public synchronized 
+        void clear()
+        {
+            for (byte[] k : MAP.values())
+                Arrays.fill(k, (byte) 0);
+            MAP.clear();
+            BORN.clear();
+        }
+
+        /**
+         * Zero and drop keys that have outlived their TTL.
+         */
+        public synchronized 
+        void purge()
+        {
+            long now = System.currentTimeMillis();
+            Iterator<Map.Entry<ByteBuffer, byte[]>> it = MAP.entrySet().iterator();
+            while (it.hasNext())
+            {
+                Map.Entry<ByteBuffer, byte[]> e = it.next();
+                if (now - BORN.get(e.getKey()) >= TTL)
+                {
+                    Arrays.fill(e.getValue(), (byte) 0);
+                    BORN.remove(e.getKey());
+                    it.remove();
+                }
+            }
+        }
+
+        /** @return Number of keys currently cached */
+        public synchronized int  size()   { return MAP.size(); }
+        /** @return Lookups served without running the KDF */
+        public synchronized long hits()   { return hits; }
+        /** @return Lookups that had to run the KDF */
+        public synchronized long misses() { return misses; }
+
+        /** Lookup id for a (password, salt) pair. */
+        private 
+        byte[] id(char[] password, byte[] salt) 
+        throws GeneralSecurityException
+        {
+            ByteBuffer pw = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+            Mac mac = CPool.mac("HmacSHA256", ID_KEY);
+            mac.update(pw.duplicate());
+            mac.update((byte) 0);
+            mac.update(salt);
+            if (pw.hasArray())
+                Arrays.fill(pw.array(), (byte) 0);
+            return mac.doFinal();
+        }
+
+        /** Return a fresh copy of a live key, or null. */
+        private synchronized 
+        SecretKey get(byte[] id)
+        {
+            ByteBuffer k = ByteBuffer.wrap(id);
+            byte[] v = MAP.get(k);
+            if (v != null && System.currentTimeMillis() - BORN.get(k) < TTL)
+            {
+                hits++;
+                return new SecretKeySpec(v, ALGO);
+            }
+            if (v != null)
+            {
+                Arrays.fill(v, (byte) 0);
+                MAP.remove(k);
+                BORN.remove(k);
+            }
+            misses++;
+            return null;
+        }
+
+        /** Store a copy of key material, evicting the least recently used key if full. */
+        private synchronized 
+        void put(byte[] id, byte[] key)
+        {
+            ByteBuffer k = ByteBuffer.wrap(id);
+            byte[] old = MAP.put(k, key.clone());
+            if (old != null)
+                Arrays.fill(old, (byte) 0);
+            BORN.put(k, System.currentTimeMillis());
+
+            if (MAP.size() > MAX)
+            {
+                Iterator<Map.Entry<ByteBuffer, byte[]>> it = MAP.entrySet().iterator();
+                Map.Entry<ByteBuffer, byte[]> e = it.next();
+                Arrays.fill(e.getValue(), (byte) 0);
+                BORN.remove(e.getKey());
+                it.remove();
+            }
+        }
     }
 
     /**
@@ -94,6 +329,23 @@ public class Jcrypt
     public 
     void enc_file(String input_path, SecretKey sk, String exten) 
     throws Exception 
+    {
+        enc_file(input_path, sk, exten, IO_BUF);
+    }
+
+    /**
+     * Encrypt a file using AES encryption with a given I/O buffer size.
+     * The original file is deleted after successful encryption.
+     * 
+     * @param input_path Path to file to encrypt
+     * @param sk Secret key for encryption
+     * @param exten Extension for encrypted file
+     * @param buf Bytes per read and cipher step
+     * @throws Exception If encryption fails
+     */
+    public 
+    void enc_file(String input_path, SecretKey sk, String exten, int buf) 
+    throws Exception 
     {
         File in = new File(input_path);
         if (!in.exists()) 
@@ -102,7 +354,7 @@ public class Jcrypt
         }
         
         File enc_file = new File(in.getParent(), in.getName() + exten);
-        proc_file(Cipher.ENCRYPT_MODE, in, enc_file, sk);
+        proc_file(Cipher.ENCRYPT_MODE, in, enc_file, sk, buf);
         in.delete();
     }
 
@@ -121,6 +373,23 @@ public class Jcrypt
     public  
     void dec_file(String enc_path, SecretKey sk, String exten) 
     throws Exception 
+    {
+        dec_file(enc_path, sk, exten, IO_BUF);
+    }
+
+    /**
+     * Decrypt a file using AES decryption with a given I/O buffer size.
+     * The encrypted file is deleted after successful decryption.
+     * 
+     * @param enc_path Path to encrypted file to decrypt
+     * @param sk Secret key for decryption
+     * @param exten Extension of encrypted file
+     * @param buf Bytes per read and cipher step
+     * @throws Exception If decryption fails
+     */
+    public  
+    void dec_file(String enc_path, SecretKey sk, String exten, int buf) 
+    throws Exception 
     {
         File enc_file = new File(enc_path);
         if (!enc_file.exists()) 
@@ -135,7 +404,7 @@ public class Jcrypt
         
         String org = enc_file.getName().replace(exten, "");
         File dec_file = new File(enc_file.getParent(), org);
-        proc_file(Cipher.DECRYPT_MODE, enc_file, dec_file, sk);
+        proc_file(Cipher.DECRYPT_MODE, enc_file, dec_file, sk, buf);
         enc_file.delete();
     }
 
@@ -143,30 +412,1776 @@ public class Jcrypt
      * Process a file for encryption or decryption.
      * This internal method handles the actual encryption/decryption process.
      * 
+     * A read-ahead thread fills buffers from the input FileChannel while this
+     * thread runs the cipher over the previous buffer and writes the result,
+     * so disk reads and cipher work overlap. Buffers are recycled through a
+     * small pool; nothing is allocated per block.
+     * 
+     * The buffers are heap-backed: on JDK 17 Cipher.update(ByteBuffer,
+     * ByteBuffer) bounces direct buffers through 4 KiB temporary arrays,
+     * which measured several times slower than array-backed buffers.
+     * 
      * @param cipher_mode Cipher.ENCRYPT_MODE or Cipher.DECRYPT_MODE
      * @param in_file Input file
      * @param out_file Output file
      * @param sk Secret key
-     * @throws Exception If process fails
+     * @param buf Bytes per read and cipher step
+     * @throws Exception If process fails; the output file is removed
      */
     private  
-    void proc_file(int cipher_mode, File in_file, File out_file, SecretKey sk) 
+    void proc_file(int cipher_mode, File in_file, File out_file, SecretKey sk, int buf) 
     throws Exception 
     {
-        Cipher cipher = Cipher.getInstance(ALGO);
+        if (buf <= 0)
+            throw new IllegalArgumentException("buf: " + buf);
+
+        Cipher cipher = CPool.cipher(ALGO);
         cipher.init(cipher_mode, sk);
-        
-        try (FileInputStream fis = new FileInputStream(in_file);
-             FileOutputStream fos = new FileOutputStream(out_file);
-             CipherOutputStream cos = new CipherOutputStream(fos, cipher)) 
+
+        final ByteBuffer eof = ByteBuffer.allocate(0);
+        final ArrayBlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(IO_DEPTH);
+        final ArrayBlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(IO_DEPTH + 1);
+        final Exception[] failed = new Exception[1];
+        for (int i = 0; i < IO_DEPTH; i++)
+            free.add(ByteBuffer.allocate(buf));
+
+        try (FileChannel in  = FileChannel.open(in_file.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(out_file.toPath(), StandardOpenOption.WRITE,
+                                                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) 
+        {
+            // Read-ahead: fill free buffers and queue them in file order
+            Thread reader = new Thread(() -> {
+                try 
+                {
+                    int r = 0;
+                    while (r >= 0)
+                    {
+                        ByteBuffer b = free.take();
+                        b.clear();
+                        while (b.hasRemaining() && (r = in.read(b)) >= 0) { }
+                        b.flip();
+                        if (b.hasRemaining())
+                            full.put(b);
+                    }
+                } catch (Exception e) 
+                {
+                    failed[0] = e;
+                } finally 
+                {
+                    full.offer(eof);
+                }
+            }, "Jcrypt-read");
+            reader.setDaemon(true);
+            reader.start();
+
+            try 
+            {
+                ByteBuffer o = ByteBuffer.allocate(cipher.getOutputSize(buf) + 32);
+                ByteBuffer b;
+                while ((b = full.take()) != eof)
+                {
+                    o.clear();
+                    cipher.update(b, o);
+                    free.put(b);
+                    o.flip();
+                    write_full(out, o);
+                }
+                reader.join();
+                if (failed[0] != null)
+                    throw failed[0];
+
+                o.clear();
+                cipher.doFinal(eof.duplicate(), o);
+                o.flip();
+                write_full(out, o);
+            } finally 
+            {
+                reader.interrupt();
+            }
+        } catch (Exception e) 
+        {
+            out_file.delete();
+            throw e;
+        }
+    }
+
+    // CHUNKED AES-GCM //
+    //
+    /*
+     * Container layout (all integers big-endian):
+     *
+     *   offset  size  field
+     *   0       4     magic "CJG1"
+     *   4       1     version (2)
+     *   5       1     flags: compression method of the plaintext (Z_NONE, Z_DEFLATE)
+     *   6       16    KDF salt when the key came from a password, else zeros
+     *   22      16    file nonce (random per file)
+     *   38      4     nonce prefix (random per file)
+     *   42      4     chunk size in plaintext bytes
+     *   46      ...   chunks: ciphertext || 16-byte GCM tag
+     *
+     * Chunks are not sealed with the caller's key but with a per-file
+     * subkey, HKDF-SHA256(key, salt = file nonce), of the same length. One
+     * key can therefore seal any number of files: two files share a GCM
+     * key only if their 128-bit nonces collide, and within a file the
+     * nonce prefix || chunk index never repeats.
+     *
+     * Every chunk holds chunk-size plaintext bytes except the last, which
+     * holds 0..chunk-size. Chunk i is sealed with nonce prefix || i (8 bytes)
+     * and AAD header || last-flag, so the header is authenticated, chunks
+     * cannot be reordered, and truncation at a chunk boundary is detected
+     * because the new final chunk was not sealed as last.
+     */
+    /** Transformation used for chunked files */
+    public static final String GCM = "AES/GCM/NoPadding";
+    /** Default plaintext bytes per chunk (1 MiB) */
+    public static final int    GCM_CHUNK = 1 << 20;
+    /** Size of the chunked file header in bytes */
+    public static final int    GCM_HEADER = 46;
+    /** GCM tag size in bytes */
+    public static final int    GCM_TAG = 16;
+    /** Salt size in the chunked file header */
+    public static final int    SALT_LEN = 16;
+    /** Header flag: chunks hold the plaintext as is */
+    public static final int    Z_NONE = 0;
+    /** Header flag: chunks hold the plaintext compressed as a zlib (deflate) stream */
+    public static final int    Z_DEFLATE = 1;
+    //
+    private static final byte[] MAGIC = { 'C', 'J', 'G', '1' };
+    private static final int    VERSION = 2;
+    /** Header offsets of the file nonce, nonce prefix and chunk size */
+    private static final int    H_NONCE = 22, H_PREFIX = 38, H_CHUNK = 42;
+    private static final byte[] SUBKEY_INFO = "CJG2 chunk key".getBytes(StandardCharsets.US_ASCII);
+    private static final SecureRandom RNG = new SecureRandom();
+
+    /**
+     * Encrypt a file into the chunked AES-GCM format on all cores.
+     * The original file is deleted after successful encryption.
+     * 
+     * @param input_path Path to file to encrypt
+     * @param sk Secret key for encryption (128, 192 or 256-bit AES)
+     * @param exten Extension for encrypted file
+     * @throws Exception If encryption fails
+     * 
+     * Example:
+     * enc_gcm("secret.txt", key, ".gcm") creates "secret.txt.gcm"
+     */
+    public 
+    void enc_gcm(String input_path, SecretKey sk, String exten) 
+    throws Exception 
+    {
+        File in = new File(input_path);
+        if (!in.exists()) 
+        {
+            throw new FileNotFoundException("Input file not found: " + in.getAbsolutePath());
+        }
+
+        File enc_file = new File(in.getParent(), in.getName() + exten);
+        enc_gcm(in, enc_file, sk, new byte[SALT_LEN], GCM_CHUNK, Runtime.getRuntime().availableProcessors());
+        in.delete();
+    }
+
+    /**
+     * Decrypt a chunked AES-GCM file on all cores.
+     * The encrypted file is deleted after successful decryption.
+     * 
+     * @param enc_path Path to encrypted file to decrypt
+     * @param sk Secret key for decryption
+     * @param exten Extension of encrypted file
+     * @throws Exception If decryption or authentication fails
+     */
+    public 
+    void dec_gcm(String enc_path, SecretKey sk, String exten) 
+    throws Exception 
+    {
+        File enc_file = new File(enc_path);
+        if (!enc_file.exists()) 
+        {
+            throw new FileNotFoundException("Encrypted file not found: " + enc_file.getAbsolutePath());
+        }
+
+        if (!enc_file.getName().endsWith(exten)) 
+        {
+            throw new IllegalArgumentException("File does not have "+exten+" extension: " + enc_file.getName());
+        }
+
+        String org = enc_file.getName().substring(0, enc_file.getName().length() - exten.length());
+        File dec_file = new File(enc_file.getParent(), org);
+        dec_gcm(enc_file, dec_file, sk, Runtime.getRuntime().availableProcessors());
+        enc_file.delete();
+    }
+
+    /**
+     * Encrypt a file into the chunked AES-GCM format with a password.
+     * A random salt is generated, stored in the header and used to derive the key.
+     * The original file is deleted after successful encryption.
+     * 
+     * @param input_path Path to file to encrypt
+     * @param password Password to derive the key from
+     * @param exten Extension for encrypted file
+     * @throws Exception If encryption fails
+     */
+    public 
+    void enc_gcm(String input_path, char[] password, String exten) 
+    throws Exception 
+    {
+        File in = new File(input_path);
+        if (!in.exists()) 
+        {
+            throw new FileNotFoundException("Input file not found: " + in.getAbsolutePath());
+        }
+
+        byte[] salt = new byte[SALT_LEN];
+        RNG.nextBytes(salt);
+        File enc_file = new File(in.getParent(), in.getName() + exten);
+        enc_gcm(in, enc_file, gen_key(password, salt), salt, GCM_CHUNK, Runtime.getRuntime().availableProcessors());
+        in.delete();
+    }
+
+    /**
+     * Decrypt a password-encrypted chunked AES-GCM file.
+     * The key is derived from the salt in the file header, or taken from the
+     * key cache if this password and salt were seen recently.
+     * The encrypted file is deleted after successful decryption.
+     * 
+     * @param enc_path Path to encrypted file to decrypt
+     * @param password Password the file was encrypted with
+     * @param exten Extension of encrypted file
+     * @throws Exception If decryption or authentication fails
+     */
+    public 
+    void dec_gcm(String enc_path, char[] password, String exten) 
+    throws Exception 
+    {
+        dec_gcm(enc_path, gen_key(password, read_salt(new File(enc_path))), exten);
+    }
+
+    /**
+     * Read the KDF salt from a chunked AES-GCM file header.
+     * 
+     * @param enc_file Encrypted file
+     * @return The salt stored in the header
+     * @throws Exception If the file cannot be read or is not a chunked file
+     */
+    public 
+    byte[] read_salt(File enc_file) 
+    throws Exception 
+    {
+        byte[] header = new byte[GCM_HEADER];
+        try (FileChannel ch = FileChannel.open(enc_file.toPath(), StandardOpenOption.READ)) 
+        {
+            read_full(ch, ByteBuffer.wrap(header), 0);
+        }
+        check_header(header);
+        return Arrays.copyOfRange(header, 6, 6 + SALT_LEN);
+    }
+
+    /**
+     * Encrypt a file into the chunked AES-GCM format.
+     * Chunks are sealed in parallel and written in order; the input is kept.
+     * 
+     * @param in_file Input file
+     * @param out_file Output file, replaced if it exists
+     * @param sk Secret key
+     * @param salt Salt the key was derived with, recorded in the header (SALT_LEN bytes)
+     * @param chunk Plaintext bytes per chunk
+     * @param threads Number of cipher threads
+     * @throws Exception If encryption fails; the output file is removed
+     */
+    public 
+    void enc_gcm(File in_file, File out_file, SecretKey sk, byte[] salt, int chunk, int threads) 
+    throws Exception 
+    {
+        if (salt.length != SALT_LEN || chunk <= 0 || chunk > Integer.MAX_VALUE - GCM_TAG || threads <= 0)
+            throw new IllegalArgumentException("salt: " + salt.length + ", chunk: " + chunk + ", threads: " + threads);
+
+        byte[]    header = header(salt, chunk, Z_NONE);
+        byte[]    prefix = Arrays.copyOfRange(header, H_PREFIX, H_PREFIX + 4);
+        SecretKey fk     = file_key(sk, header);
+
+        try (FileChannel in  = FileChannel.open(in_file.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(out_file.toPath(), StandardOpenOption.WRITE,
+                                                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) 
+        {
+            long size = in.size();
+            long n    = Math.max(1, (size + chunk - 1) / chunk);
+            write_full(out, ByteBuffer.wrap(header));
+
+            run_chunks(n, threads, idx -> {
+                long pos = idx * chunk;
+                int  len = (int) Math.min(chunk, size - pos);
+                byte[] buf = new byte[len];
+                read_full(in, ByteBuffer.wrap(buf), pos);
+
+                Cipher c = gcm_cipher(Cipher.ENCRYPT_MODE, fk, prefix, idx, header, idx == n - 1);
+                return c.doFinal(buf);
+            }, buf -> write_full(out, ByteBuffer.wrap(buf)));
+        } catch (Exception e)
+        {
+            out_file.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Compress a file with deflate, then encrypt it into the chunked AES-GCM format.
+     * The original file is deleted after successful encryption; dec_gcm restores it.
+     * 
+     * @param input_path Path to file to compress and encrypt
+     * @param sk Secret key for encryption
+     * @param exten Extension for encrypted file
+     * @param level Deflate level, 0 to 9, or -1 for the default
+     * @throws Exception If compression or encryption fails
+     */
+    public 
+    void enc_gcm_deflate(String input_path, SecretKey sk, String exten, int level) 
+    throws Exception 
+    {
+        File in = new File(input_path);
+        if (!in.exists()) 
+        {
+            throw new FileNotFoundException("Input file not found: " + in.getAbsolutePath());
+        }
+
+        File enc_file = new File(in.getParent(), in.getName() + exten);
+        enc_gcm_deflate(in, enc_file, sk, new byte[SALT_LEN], level);
+        in.delete();
+    }
+
+    /**
+     * Compress a file with deflate, then encrypt it into the chunked AES-GCM format.
+     * A compressor thread reads and deflates the input into a bounded queue of
+     * blocks while this thread seals them, so the two stages overlap. The header
+     * records Z_DEFLATE; the input is kept.
+     * 
+     * @param in_file Input file
+     * @param out_file Output file, replaced if it exists
+     * @param sk Secret key
+     * @param salt Salt the key was derived with, recorded in the header (SALT_LEN bytes)
+     * @param level Deflate level, 0 to 9, or -1 for the default
+     * @throws IllegalArgumentException If level is out of range
+     * @throws Exception If compression or encryption fails; the output file is removed
+     */
+    public 
+    void enc_gcm_deflate(File in_file, File out_file, SecretKey sk, byte[] salt, int level) 
+    throws Exception 
+    {
+        if (level < -1 || level > 9)
+            throw new IllegalArgumentException("Deflate level: " + level);
+        final byte[] end = new byte[0];
+        final ArrayBlockingQueue<byte[]> q = new ArrayBlockingQueue<>(IO_DEPTH);
+        final Throwable[] failed = new Throwable[1];
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        // Compressor: deflate the input into blocks for the encryptor.
+        // Every exit, even a failed Deflater, queues end and records why
+        Thread z = new Thread(() -> {
+            Deflater d = null;
+            OutputStream blocks = new OutputStream() 
+            {
+                @Override
+                public void write(int b) throws IOException
+                {
+                    write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int n) throws IOException
+                {
+                    if (!hand_off(q, Arrays.copyOfRange(b, off, off + n), cancelled))
+                        throw new InterruptedIOException("Compressor cancelled");
+                }
+            };
+            try 
+            {
+                d = new Deflater(level);
+                try (FileInputStream fis = new FileInputStream(in_file);
+                     DeflaterOutputStream dos = new DeflaterOutputStream(blocks, d, IO_BUF)) 
+                {
+                    byte[] buf = new byte[IO_BUF];
+                    int n;
+                    while ((n = fis.read(buf)) != -1)
+                        dos.write(buf, 0, n);
+                }
+            } catch (Throwable e) 
+            {
+                failed[0] = e;
+            } finally 
+            {
+                if (d != null)
+                    d.end();
+                // Skipped if the encryptor has given up; nothing is waiting for it
+                hand_off(q, end, cancelled);
+            }
+        }, "Jcrypt-deflate");
+        z.setDaemon(true);
+        z.start();
+
+        try (GcmOut out = new GcmOut(sk, new BufferedOutputStream(new FileOutputStream(out_file), IO_BUF),
+                                     GCM_CHUNK, salt, Z_DEFLATE)) 
+        {
+            byte[] b;
+            while ((b = q.take()) != end)
+                out.write(b);
+            z.join();
+            if (failed[0] instanceof Error)
+                throw (Error) failed[0];
+            if (failed[0] != null)
+                throw (Exception) failed[0];
+        } catch (Exception | Error e) 
+        {
+            // Stop the compressor and wait for it, so no thread outlives the call
+            cancelled.set(true);
+            z.interrupt();
+            q.clear();
+            z.join();
+            out_file.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Queue a block for the encryptor, giving up once it has failed.
+     * Interrupts are not relied on: the stream close in the compressor's
+     * try-with-resources can swallow one and then block on a full queue.
+     * 
+     * @return false if cancelled before the block was queued
+     */
+    private static 
+    boolean hand_off(ArrayBlockingQueue<byte[]> q, byte[] b, AtomicBoolean cancelled)
+    {
+        while (!cancelled.get())
         {
-            // Process file in chunks for better memory management
-            byte[] buf = new byte[4096];
-            int b_read;
-            while ((b_read = fis.read(buf)) != -1) 
+            try 
             {
-                cos.write(buf, 0, b_read);
+                if (q.offer(b, 50, TimeUnit.MILLISECONDS))
+                    return true;
+            } catch (InterruptedException e) 
+            {
+                // Re-checked above; cancelled is set before the interrupt
             }
         }
+        return false;
+    }
+
+    /**
+     * Decrypt a chunked AES-GCM file.
+     * Chunks are opened in parallel and written in order; the input is kept.
+     * Files written by enc_gcm_deflate are inflated while they are decrypted.
+     * 
+     * @param in_file Encrypted input file
+     * @param out_file Output file, replaced if it exists
+     * @param sk Secret key
+     * @param threads Number of cipher threads
+     * @throws Exception If decryption or authentication fails; the output file is removed
+     */
+    public 
+    void dec_gcm(File in_file, File out_file, SecretKey sk, int threads) 
+    throws Exception 
+    {
+        if (threads <= 0)
+            throw new IllegalArgumentException("threads: " + threads);
+
+        try (FileChannel in  = FileChannel.open(in_file.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(out_file.toPath(), StandardOpenOption.WRITE,
+                                                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) 
+        {
+            byte[] header = new byte[GCM_HEADER];
+            read_full(in, ByteBuffer.wrap(header), 0);
+            int       chunk  = check_header(header);
+            byte[]    prefix = Arrays.copyOfRange(header, H_PREFIX, H_PREFIX + 4);
+            SecretKey fk     = file_key(sk, header);
+            long      n      = chunk_count(in.size(), chunk);
+            long   stride = (long) chunk + GCM_TAG;
+
+            // Compressed payloads are inflated on this thread while the pool decrypts ahead
+            Inflater inf = new Inflater();
+            OutputStream plain = header[5] == Z_DEFLATE
+                ? new InflaterOutputStream(Channels.newOutputStream(out), inf, IO_BUF)
+                : Channels.newOutputStream(out);
+
+            try 
+            {
+                run_chunks(n, threads, idx -> {
+                    long pos = GCM_HEADER + idx * stride;
+                    int  len = (int) Math.min(stride, in.size() - pos);
+                    byte[] buf = new byte[len];
+                    read_full(in, ByteBuffer.wrap(buf), pos);
+
+                    Cipher c = gcm_cipher(Cipher.DECRYPT_MODE, fk, prefix, idx, header, idx == n - 1);
+                    return c.doFinal(buf);
+                }, buf -> plain.write(buf));
+                if (plain instanceof InflaterOutputStream)
+                {
+                    ((InflaterOutputStream) plain).finish();
+                    if (!inf.finished())
+                        throw new IOException("Truncated deflate stream");
+                }
+            } finally 
+            {
+                inf.end();
+            }
+        } catch (Exception e)
+        {
+            out_file.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Factory method to open a random-access reader over a chunked AES-GCM file.
+     * 
+     * @param enc_path Path to a file written by enc_gcm
+     * @param sk Secret key
+     * @return A new GcmReader
+     * @throws Exception If the file cannot be opened or its header is invalid
+     */
+    public 
+    GcmReader GcmReader(String enc_path, SecretKey sk) 
+    throws Exception 
+    {
+        return new GcmReader(enc_path, sk);
+    }
+
+    /**
+     * Factory method to open a random-access reader over a password-encrypted file.
+     * 
+     * @param enc_path Path to a file written by enc_gcm
+     * @param password Password the file was encrypted with
+     * @return A new GcmReader
+     * @throws Exception If the file cannot be opened or its header is invalid
+     */
+    public 
+    GcmReader GcmReader(String enc_path, char[] password) 
+    throws Exception 
+    {
+        return new GcmReader(enc_path, gen_key(password, read_salt(new File(enc_path))));
+    }
+
+    /**
+     * Reads plaintext byte ranges from a chunked AES-GCM file without
+     * decrypting the rest of it. A read locates the chunks that cover the
+     * range, reads and authenticates only those, and copies the requested
+     * bytes into the caller's buffer. The most recently opened chunk is kept,
+     * so sequential small reads decrypt each chunk once.
+     * 
+     * The cost of a cold read is one chunk; files meant for random access
+     * should be written with a small chunk size (e.g. 64 KiB) rather than
+     * the 1 MiB default.
+     * 
+     * Reads are serialised on the reader; open one reader per thread for
+     * parallel access.
+     * 
+     * @author CJ Remillard
+     * @version 1.0
+     */
+    public 
+    class GcmReader implements AutoCloseable
+    {
+        // FIELDS //
+        //
+        private final FileChannel CH;
+        private final SecretKey   SK;
+        private final byte[]      HEADER = new byte[GCM_HEADER];
+        private final byte[]      PREFIX;
+        private final int         CHUNK;
+        private final long        N;        // number of chunks
+        private final long        SIZE;     // plaintext bytes
+        private final Cipher      CIPHER;
+        private final byte[]      ENC;      // one sealed chunk
+        private final byte[]      PLAIN;    // the opened chunk at cached
+        private long              cached = -1;
+        private int               cached_len;
+
+
+        /**
+         * Opens a reader and validates the file's header and length.
+         * 
+         * @param enc_path Path to a file written by enc_gcm
+         * @param sk Secret key
+         * @throws Exception If the file cannot be opened or is not a chunked file
+         */
+        public GcmReader(String enc_path, SecretKey sk) 
+        throws Exception 
+        {
+            this.CH = FileChannel.open(new File(enc_path).toPath(), StandardOpenOption.READ);
+            try 
+            {
+                read_full(CH, ByteBuffer.wrap(HEADER), 0);
+                this.CHUNK  = check_header(HEADER);
+                if (HEADER[5] != Z_NONE)
+                    throw new IOException("Compressed files have no random access; use dec_gcm or dec_in");
+                this.PREFIX = Arrays.copyOfRange(HEADER, H_PREFIX, H_PREFIX + 4);
+                this.N      = chunk_count(CH.size(), CHUNK);
+                this.SIZE   = CH.size() - GCM_HEADER - N * GCM_TAG;
+                this.SK     = file_key(sk, HEADER);
+                this.CIPHER = new_cipher(GCM);
+                int cap     = (int) Math.min(CHUNK, SIZE);
+                this.ENC    = new byte[cap + GCM_TAG];
+                this.PLAIN  = new byte[cap];
+            } catch (Exception e) 
+            {
+                CH.close();
+                throw e;
+            }
+        }
+
+
+        /**
+         * @return Plaintext length of the file in bytes
+         */
+        public 
+        long size()
+        {
+            return SIZE;
+        }
+
+        /**
+         * Decrypt up to len plaintext bytes starting at pos into dst.
+         * 
+         * @param pos Plaintext offset to start at
+         * @param dst Destination buffer
+         * @param off Offset in dst
+         * @param len Maximum number of bytes to read
+         * @return Number of bytes read, or -1 if pos is at or past the end
+         * @throws Exception If a chunk fails authentication or cannot be read
+         */
+        public synchronized 
+        int read(long pos, byte[] dst, int off, int len) 
+        throws Exception 
+        {
+            if (pos < 0 || off < 0 || len < 0 || off + len > dst.length)
+                throw new IndexOutOfBoundsException("pos: " + pos + ", off: " + off + ", len: " + len);
+            if (pos >= SIZE)
+                return -1;
+
+            int done = 0;
+            len = (int) Math.min(len, SIZE - pos);
+            while (done < len)
+            {
+                long idx = pos / CHUNK;
+                int  in  = (int) (pos % CHUNK);
+                open(idx);
+                int k = Math.min(len - done, cached_len - in);
+                System.arraycopy(PLAIN, in, dst, off + done, k);
+                done += k;
+                pos  += k;
+            }
+            return done;
+        }
+
+        @Override
+        public 
+        void close() 
+        throws IOException
+        {
+            CH.close();
+        }
+
+        /** Read and authenticate chunk idx into PLAIN unless it is already there. */
+        private 
+        void open(long idx) 
+        throws Exception 
+        {
+            if (idx == cached)
+                return;
+            cached = -1;
+
+            long pos = GCM_HEADER + idx * ((long) CHUNK + GCM_TAG);
+            int  len = (int) Math.min((long) CHUNK + GCM_TAG, CH.size() - pos);
+            read_full(CH, ByteBuffer.wrap(ENC, 0, len), pos);
+
+            gcm_init(CIPHER, Cipher.DECRYPT_MODE, SK, PREFIX, idx, HEADER, idx == N - 1);
+            cached_len = CIPHER.doFinal(ENC, 0, len, PLAIN, 0);
+            cached = idx;
+        }
+    }
+
+    // IN-MEMORY AND STREAMING //
+    //
+    /*
+     * Messages are sealed as nonce (12 random bytes) || ciphertext || tag (16),
+     * so a message is MSG_OVERHEAD bytes longer than its plaintext.
+     * Streams use the chunked AES-GCM file format, so a file written by
+     * enc_gcm can be read with dec_in and vice versa.
+     */
+    /** GCM nonce size in bytes */
+    public static final int NONCE_LEN = 12;
+    /** Bytes added to each sealed message: nonce plus tag */
+    public static final int MSG_OVERHEAD = NONCE_LEN + GCM_TAG;
+    //
+    /** One nonce buffer per thread; the cipher comes from CPool */
+    private static final ThreadLocal<byte[]> MSG_NONCE = ThreadLocal.withInitial(() -> new byte[NONCE_LEN]);
+
+    /**
+     * Encrypt bytes into a caller-provided buffer.
+     * The input is left untouched; in and out may be the same array.
+     * 
+     * @param sk Secret key
+     * @param in Plaintext buffer
+     * @param off Offset of the plaintext
+     * @param len Length of the plaintext
+     * @param out Destination, with room for len + MSG_OVERHEAD bytes
+     * @param out_off Offset in out to write at
+     * @return Number of bytes written (len + MSG_OVERHEAD)
+     * @throws GeneralSecurityException If encryption fails
+     */
+    public 
+    int enc(SecretKey sk, byte[] in, int off, int len, byte[] out, int out_off) 
+    throws GeneralSecurityException 
+    {
+        if (out.length - out_off < len + MSG_OVERHEAD)
+            throw new ShortBufferException("Need " + (len + MSG_OVERHEAD) + " bytes");
+
+        Cipher c = msg_cipher(Cipher.ENCRYPT_MODE, sk, null, 0);
+        int n = c.doFinal(in, off, len, out, out_off + NONCE_LEN);
+        System.arraycopy(MSG_NONCE.get(), 0, out, out_off, NONCE_LEN);
+        return NONCE_LEN + n;
+    }
+
+    /**
+     * Decrypt a sealed message into a caller-provided buffer.
+     * 
+     * @param sk Secret key
+     * @param in Buffer holding the sealed message
+     * @param off Offset of the message
+     * @param len Length of the message
+     * @param out Destination, with room for len - MSG_OVERHEAD bytes
+     * @param out_off Offset in out to write at
+     * @return Number of plaintext bytes written
+     * @throws GeneralSecurityException If the message is malformed or fails authentication
+     */
+    public 
+    int dec(SecretKey sk, byte[] in, int off, int len, byte[] out, int out_off) 
+    throws GeneralSecurityException 
+    {
+        if (len < MSG_OVERHEAD)
+            throw new AEADBadTagException("Message too short: " + len);
+        if (out.length - out_off < len - MSG_OVERHEAD)
+            throw new ShortBufferException("Need " + (len - MSG_OVERHEAD) + " bytes");
+
+        Cipher c = msg_cipher(Cipher.DECRYPT_MODE, sk, in, off);
+        return c.doFinal(in, off + NONCE_LEN, len - NONCE_LEN, out, out_off);
+    }
+
+    /**
+     * Encrypt a byte array into a new sealed message.
+     * 
+     * @param sk Secret key
+     * @param in Plaintext
+     * @return Sealed message
+     * @throws GeneralSecurityException If encryption fails
+     */
+    public 
+    byte[] enc(SecretKey sk, byte[] in) 
+    throws GeneralSecurityException 
+    {
+        byte[] out = new byte[in.length + MSG_OVERHEAD];
+        enc(sk, in, 0, in.length, out, 0);
+        return out;
+    }
+
+    /**
+     * Decrypt a sealed message into a new byte array.
+     * 
+     * @param sk Secret key
+     * @param in Sealed message
+     * @return Plaintext
+     * @throws GeneralSecurityException If the message fails authentication
+     */
+    public 
+    byte[] dec(SecretKey sk, byte[] in) 
+    throws GeneralSecurityException 
+    {
+        if (in.length < MSG_OVERHEAD)
+            throw new AEADBadTagException("Message too short: " + in.length);
+        byte[] out = new byte[in.length - MSG_OVERHEAD];
+        dec(sk, in, 0, in.length, out, 0);
+        return out;
+    }
+
+    /**
+     * Encrypt the remaining bytes of in into out, advancing both.
+     * The buffers may share memory, including overlapping in-place use.
+     * 
+     * @param sk Secret key
+     * @param in Plaintext, from position to limit
+     * @param out Destination, with in.remaining() + MSG_OVERHEAD bytes free
+     * @return Number of bytes written
+     * @throws GeneralSecurityException If encryption fails
+     */
+    public 
+    int enc(SecretKey sk, ByteBuffer in, ByteBuffer out) 
+    throws GeneralSecurityException 
+    {
+        if (out.remaining() < in.remaining() + MSG_OVERHEAD)
+            throw new ShortBufferException("Need " + (in.remaining() + MSG_OVERHEAD) + " bytes");
+
+        Cipher c = msg_cipher(Cipher.ENCRYPT_MODE, sk, null, 0);
+        int start = out.position();
+        out.position(start + NONCE_LEN);
+        int n = c.doFinal(in, out);
+        out.put(start, MSG_NONCE.get());
+        return NONCE_LEN + n;
+    }
+
+    /**
+     * Decrypt the remaining bytes of in (a sealed message) into out, advancing both.
+     * The buffers may share memory, including overlapping in-place use.
+     * 
+     * @param sk Secret key
+     * @param in Sealed message, from position to limit
+     * @param out Destination, with in.remaining() - MSG_OVERHEAD bytes free
+     * @return Number of plaintext bytes written
+     * @throws GeneralSecurityException If the message fails authentication
+     */
+    public 
+    int dec(SecretKey sk, ByteBuffer in, ByteBuffer out) 
+    throws GeneralSecurityException 
+    {
+        if (in.remaining() < MSG_OVERHEAD)
+            throw new AEADBadTagException("Message too short: " + in.remaining());
+
+        byte[] nonce = MSG_NONCE.get();
+        in.get(nonce);
+        Cipher c = msg_cipher(Cipher.DECRYPT_MODE, sk, nonce, 0);
+        return c.doFinal(in, out);
+    }
+
+    /**
+     * Encrypt a buffer in place. The plaintext between position and limit is
+     * replaced by the sealed message, which is MSG_OVERHEAD bytes longer, so
+     * the buffer needs that much room past its limit. On return position is
+     * unchanged and limit marks the end of the message.
+     * 
+     * @param sk Secret key
+     * @param b Buffer holding the plaintext
+     * @return Length of the sealed message
+     * @throws GeneralSecurityException If encryption fails
+     */
+    public 
+    int enc_in_place(SecretKey sk, ByteBuffer b) 
+    throws GeneralSecurityException 
+    {
+        int start = b.position();
+        ByteBuffer out = b.duplicate();
+        out.limit(Math.min(b.capacity(), b.limit() + MSG_OVERHEAD));
+        int n = enc(sk, b, out);
+        b.limit(start + n).position(start);
+        return n;
+    }
+
+    /**
+     * Decrypt a buffer in place. The sealed message between position and limit
+     * is replaced by its plaintext. On return position is unchanged and limit
+     * marks the end of the plaintext.
+     * 
+     * @param sk Secret key
+     * @param b Buffer holding the sealed message
+     * @return Length of the plaintext
+     * @throws GeneralSecurityException If the message fails authentication
+     */
+    public 
+    int dec_in_place(SecretKey sk, ByteBuffer b) 
+    throws GeneralSecurityException 
+    {
+        int start = b.position();
+        ByteBuffer out = b.duplicate();
+        int n = dec(sk, b, out);
+        b.limit(start + n).position(start);
+        return n;
+    }
+
+    /**
+     * Wrap a stream so that everything written to it is encrypted into the
+     * chunked AES-GCM format. close() seals the final chunk and closes out.
+     * 
+     * @param sk Secret key
+     * @param out Destination of the encrypted stream
+     * @return Encrypting stream
+     * @throws IOException If the header cannot be written
+     */
+    public 
+    GcmOut enc_out(SecretKey sk, OutputStream out) 
+    throws IOException 
+    {
+        return new GcmOut(sk, out, GCM_CHUNK);
+    }
+
+    /**
+     * Wrap a stream in the chunked AES-GCM format so that reads return plaintext.
+     * Each chunk is authenticated before any of its bytes are returned, and
+     * compressed payloads (Z_DEFLATE) are inflated transparently.
+     * 
+     * @param sk Secret key
+     * @param in Source of the encrypted stream
+     * @return Decrypting stream
+     * @throws IOException If the header is missing or invalid
+     */
+    public 
+    InputStream dec_in(SecretKey sk, InputStream in) 
+    throws IOException 
+    {
+        GcmIn g = new GcmIn(sk, in);
+        if (g.method() != Z_DEFLATE)
+            return g;
+
+        Inflater inf = new Inflater();
+        return new InflaterInputStream(g, inf, IO_BUF) 
+        {
+            @Override
+            public void close() throws IOException
+            {
+                try { super.close(); } finally { inf.end(); }
+            }
+        };
+    }
+
+    /**
+     * Channel form of dec_in.
+     * 
+     * @param sk Secret key
+     * @param ch Source of the encrypted stream
+     * @return Channel of plaintext
+     * @throws IOException If the header is missing or invalid
+     */
+    public 
+    ReadableByteChannel dec_channel(SecretKey sk, ReadableByteChannel ch) 
+    throws IOException 
+    {
+        return Channels.newChannel(dec_in(sk, Channels.newInputStream(ch)));
+    }
+
+    /**
+     * Channel form of enc_out.
+     * 
+     * @param sk Secret key
+     * @param ch Destination of the encrypted stream
+     * @return Channel that encrypts what is written to it
+     * @throws IOException If the header cannot be written
+     */
+    public 
+    WritableByteChannel enc_channel(SecretKey sk, WritableByteChannel ch) 
+    throws IOException 
+    {
+        return Channels.newChannel(enc_out(sk, Channels.newOutputStream(ch)));
+    }
+
+    /**
+     * Output stream producing the chunked AES-GCM format.
+     * One chunk is buffered; it is sealed as the last chunk only on close(),
+     * which is how the stream knows no more data follows.
+     * 
+     * @author CJ Remillard
+     * @version 1.0
+     */
+    public 
+    class GcmOut extends OutputStream
+    {
+        // FIELDS //
+        //
+        private final OutputStream OUT;
+        private final SecretKey    SK;
+        private final byte[]       HEADER;
+        private final byte[]       PREFIX;
+        private final Cipher       CIPHER;
+        private final byte[]       BUF;
+        private final byte[]       ENC;
+        private int                len;
+        private long               idx;
+        private boolean            closed;
+
+
+        /**
+         * Constructs a new GcmOut and writes the header.
+         * 
+         * @param sk Secret key
+         * @param out Destination of the encrypted stream
+         * @param chunk Plaintext bytes per chunk
+         * @throws IOException If the header cannot be written
+         */
+        public GcmOut(SecretKey sk, OutputStream out, int chunk) 
+        throws IOException 
+        {
+            this(sk, out, chunk, new byte[SALT_LEN], Z_NONE);
+        }
+
+        /**
+         * Constructs a new GcmOut with an explicit header salt and
+         * compression flag, and writes the header. The caller is responsible
+         * for compressing what it writes when method is Z_DEFLATE.
+         * 
+         * @param sk Secret key
+         * @param out Destination of the encrypted stream
+         * @param chunk Plaintext bytes per chunk
+         * @param salt Salt the key was derived with (SALT_LEN bytes)
+         * @param method Z_NONE or Z_DEFLATE
+         * @throws IOException If the header cannot be written
+         */
+        public GcmOut(SecretKey sk, OutputStream out, int chunk, byte[] salt, int method) 
+        throws IOException 
+        {
+            if (chunk <= 0 || chunk > Integer.MAX_VALUE - GCM_TAG || salt.length != SALT_LEN)
+                throw new IllegalArgumentException("chunk: " + chunk + ", salt: " + salt.length);
+            if (method != Z_NONE && method != Z_DEFLATE)
+                throw new IllegalArgumentException("method: " + method);
+            this.OUT    = out;
+            this.HEADER = header(salt, chunk, method);
+            this.PREFIX = Arrays.copyOfRange(HEADER, H_PREFIX, H_PREFIX + 4);
+            this.SK     = file_key(sk, HEADER);
+            this.CIPHER = new_cipher(GCM);
+            this.BUF    = new byte[chunk];
+            this.ENC    = new byte[chunk + GCM_TAG];
+            OUT.write(HEADER);
+        }
+
+
+        @Override
+        public 
+        void write(int b) 
+        throws IOException 
+        {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public 
+        void write(byte[] b, int off, int n) 
+        throws IOException 
+        {
+            if (closed)
+                throw new IOException("Stream closed");
+            while (n > 0)
+            {
+                // A full buffer is sealed only once more data proves it is not last
+                if (len == BUF.length)
+                    seal(false);
+                int k = Math.min(n, BUF.length - len);
+                System.arraycopy(b, off, BUF, len, k);
+                len += k;
+                off += k;
+                n   -= k;
+            }
+        }
+
+        @Override
+        public 
+        void flush() 
+        throws IOException 
+        {
+            OUT.flush();
+        }
+
+        @Override
+        public 
+        void close() 
+        throws IOException 
+        {
+            if (closed)
+                return;
+            closed = true;
+            try 
+            {
+                seal(true);
+            } finally 
+            {
+                OUT.close();
+            }
+        }
+
+        /** Seal the buffered chunk and write it. */
+        private 
+        void seal(boolean last) 
+        throws IOException 
+        {
+            try 
+            {
+                gcm_init(CIPHER, Cipher.ENCRYPT_MODE, SK, PREFIX, idx++, HEADER, last);
+                int n = CIPHER.doFinal(BUF, 0, len, ENC, 0);
+                OUT.write(ENC, 0, n);
+                len = 0;
+            } catch (GeneralSecurityException e) 
+            {
+                throw new IOException("Chunk encryption failed", e);
+            }
+        }
+    }
+
+    /**
+     * Input stream reading the chunked AES-GCM format.
+     * A whole chunk is read and authenticated before any of it is returned;
+     * a tampered or truncated stream fails with an IOException.
+     * 
+     * @author CJ Remillard
+     * @version 1.0
+     */
+    public 
+    class GcmIn extends InputStream
+    {
+        // FIELDS //
+        //
+        private final PushbackInputStream IN;
+        private final SecretKey           SK;
+        private final byte[]              HEADER = new byte[GCM_HEADER];
+        private final byte[]              PREFIX;
+        private final Cipher              CIPHER;
+        private final byte[]              ENC;
+        private final byte[]              BUF;
+        private int                       pos, lim;
+        private long                      idx;
+        private boolean                   done;
+
+
+        /**
+         * Constructs a new GcmIn and reads the header.
+         * 
+         * @param sk Secret key
+         * @param in Source of the encrypted stream
+         * @throws IOException If the header is missing or invalid
+         */
+        public GcmIn(SecretKey sk, InputStream in) 
+        throws IOException 
+        {
+            this.IN = new PushbackInputStream(in, 1);
+            if (IN.readNBytes(HEADER, 0, GCM_HEADER) != GCM_HEADER)
+                throw new EOFException("Missing chunked AES-GCM header");
+            int chunk   = check_header(HEADER);
+            this.PREFIX = Arrays.copyOfRange(HEADER, H_PREFIX, H_PREFIX + 4);
+            this.SK     = file_key(sk, HEADER);
+            this.CIPHER = new_cipher(GCM);
+            this.ENC    = new byte[chunk + GCM_TAG];
+            this.BUF    = new byte[chunk];
+        }
+
+
+        @Override
+        public 
+        int read() 
+        throws IOException 
+        {
+            if (pos == lim && !next())
+                return -1;
+            return BUF[pos++] & 0xff;
+        }
+
+        @Override
+        public 
+        int read(byte[] b, int off, int n) 
+        throws IOException 
+        {
+            if (n == 0)
+                return 0;
+            if (pos == lim && !next())
+                return -1;
+            int k = Math.min(n, lim - pos);
+            System.arraycopy(BUF, pos, b, off, k);
+            pos += k;
+            return k;
+        }
+
+        @Override
+        public 
+        int available()
+        {
+            return lim - pos;
+        }
+
+        /**
+         * @return Compression method recorded in the header (Z_NONE or Z_DEFLATE)
+         */
+        public 
+        int method()
+        {
+            return HEADER[5];
+        }
+
+        @Override
+        public 
+        void close() 
+        throws IOException 
+        {
+            IN.close();
+        }
+
+        /** Read and open the next chunk; false once the last chunk is consumed. */
+        private 
+        boolean next() 
+        throws IOException 
+        {
+            while (!done)
+            {
+                int n = IN.readNBytes(ENC, 0, ENC.length);
+                boolean last = n < ENC.length;
+                if (!last)
+                {
+                    int peek = IN.read();
+                    if (peek < 0)
+                        last = true;
+                    else
+                        IN.unread(peek);
+                }
+                if (n < GCM_TAG)
+                    throw new IOException("Truncated chunked AES-GCM stream");
+
+                try 
+                {
+                    gcm_init(CIPHER, Cipher.DECRYPT_MODE, SK, PREFIX, idx++, HEADER, last);
+                    lim = CIPHER.doFinal(ENC, 0, n, BUF, 0);
+                    pos = 0;
+                } catch (GeneralSecurityException e) 
+                {
+                    throw new IOException("Chunk authentication failed", e);
+                }
+                done = last;
+                if (lim > 0)
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /** Cipher.getInstance without the checked exception, for long-lived owners. */
+    private static 
+    Cipher new_cipher(String transformation)
+    {
+        try 
+        {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) 
+        {
+            throw new IllegalStateException("Missing algorithm: " + transformation, e);
+        }
+    }
+
+    /** Initialise this thread's message cipher with a fresh or given nonce. */
+    private static 
+    Cipher msg_cipher(int mode, SecretKey sk, byte[] nonce_src, int nonce_off) 
+    throws GeneralSecurityException 
+    {
+        byte[] nonce = MSG_NONCE.get();
+        if (nonce_src == null)
+            RNG.nextBytes(nonce);
+        else if (nonce_src != nonce)
+            System.arraycopy(nonce_src, nonce_off, nonce, 0, NONCE_LEN);
+
+        Cipher c = CPool.cipher(GCM);
+        c.init(mode, sk, new GCMParameterSpec(GCM_TAG * 8, nonce));
+        return c;
+    }
+
+    // BATCH //
+    //
+    /**
+     * Factory method to create a batch encryptor over a directory tree.
+     * 
+     * @param root Directory to process
+     * @param sk Secret key
+     * @param exten Extension of encrypted files, e.g. ".gcm"
+     * @return A new Batch
+     */
+    public 
+    Batch Batch(String root, SecretKey sk, String exten) 
+    {
+        return new Batch(root, sk, exten);
+    }
+
+    /**
+     * Encrypts or decrypts every file under a directory in the chunked
+     * AES-GCM format. Like enc_gcm/dec_gcm, each file replaces its source.
+     * 
+     * Features:
+     * - Small files run one per worker on a bounded pool
+     * - Large files run one at a time with all workers on their chunks
+     * - Per-file and aggregate throughput reporting
+     * - Cancellation between files; a cancelled batch stays cancelled
+     * - Resumable: output is written to a temp file named PART_PREFIX plus
+     *   the output name, and renamed before the source is deleted, so a
+     *   rerun after a crash or cancel only sees the files that are not
+     *   finished yet. Temp files left by a crash are removed by the next
+     *   run; no two runs may share a root at the same time
+     * - Stops the run if a job throws (e.g. from the on_file sink), and
+     *   rethrows that failure from enc()/dec()
+     * 
+     * Every file gets its own random 128-bit nonce in its header and is
+     * sealed under the HKDF subkey derived from it, so one key can cover
+     * millions of files without GCM nonce reuse across them.
+     * 
+     * @author CJ Remillard
+     * @version 1.0
+     */
+    public 
+    class Batch
+    {
+        // FIELDS //
+        //
+        private static final byte[] NO_SALT = new byte[SALT_LEN];   // key is not password-derived
+        /** Name prefix of in-progress output files; reserved inside the root */
+        public static final String  PART_PREFIX = ".jcrypt-part-";
+        //
+        private final String     ROOT;
+        private final SecretKey  SK;
+        private final String     EXTEN;
+        private final LongAdder  BYTES  = new LongAdder();
+        private final LongAdder  FILES  = new LongAdder();
+        private final LongAdder  FAILED = new LongAdder();
+        //
+        private int              threads = Runtime.getRuntime().availableProcessors();
+        private long             large   = 16L << 20;
+        private Consumer<Done>   sink;
+        private volatile boolean cancelled;
+        private volatile long    start;
+        private volatile long    end;       // 0 while a run is in progress
+
+
+        /**
+         * Constructs a new Batch.
+         * 
+         * @param root Directory to process
+         * @param sk Secret key
+         * @param exten Extension of encrypted files, e.g. ".gcm"
+         */
+        public Batch(String root, SecretKey sk, String exten)
+        {
+            if (exten == null || exten.isEmpty())
+                throw new IllegalArgumentException("Extension cannot be empty");
+            byte[] raw = sk.getEncoded();
+            if (raw == null || (raw.length != 16 && raw.length != 24 && raw.length != 32))
+                throw new IllegalArgumentException("AES key of 16, 24 or 32 bytes required");
+            Arrays.fill(raw, (byte) 0);
+            this.ROOT  = root;
+            this.SK    = sk;
+            this.EXTEN = exten;
+        }
+
+
+        /**
+         * @param n Number of worker threads
+         * @return This batch
+         */
+        public 
+        Batch threads(int n)
+        {
+            if (n <= 0)
+                throw new IllegalArgumentException("threads: " + n);
+            this.threads = n;
+            return this;
+        }
+
+        /**
+         * @param bytes Size from which a file is split across all workers
+         * @return This batch
+         */
+        public 
+        Batch large(long bytes)
+        {
+            this.large = bytes;
+            return this;
+        }
+
+        /**
+         * @param sink Receives a report after each file, from worker threads
+         * @return This batch
+         */
+        public 
+        Batch on_file(Consumer<Done> sink)
+        {
+            this.sink = sink;
+            return this;
+        }
+
+        /**
+         * Encrypt every file under the root that is not already encrypted.
+         * 
+         * @return Number of files encrypted
+         * @throws RuntimeException The first failure of a job, after the run stops
+         */
+        public 
+        long enc()
+        {
+            return run(true);
+        }
+
+        /**
+         * Decrypt every file under the root that has the batch's extension.
+         * 
+         * @return Number of files decrypted
+         * @throws RuntimeException The first failure of a job, after the run stops
+         */
+        public 
+        long dec()
+        {
+            return run(false);
+        }
+
+        /**
+         * Stop after the files already in progress. Called before a run
+         * starts, that run returns at once. A cancelled batch stays
+         * cancelled.
+         */
+        public 
+        void cancel()
+        {
+            cancelled = true;
+        }
+
+        /** @return Source bytes processed so far */
+        public long bytes()  { return BYTES.sum(); }
+        /** @return Files finished so far */
+        public long files()  { return FILES.sum(); }
+        /** @return Files that failed and were left as they were */
+        public long failed() { return FAILED.sum(); }
+
+        /**
+         * @return Aggregate throughput of the current or last run in MB/s
+         */
+        public 
+        double rate()
+        {
+            long stop = end;
+            double s = ((stop != 0 ? stop : System.nanoTime()) - start) / 1e9;
+            return s > 0 ? BYTES.sum() / 1e6 / s : 0;
+        }
+
+        /** List the work, run small files on the pool, then large files one by one. */
+        private 
+        long run(boolean enc)
+        {
+            if (cancelled)
+                return 0;
+            start = System.nanoTime();
+            end   = 0;
+            long before = FILES.sum();
+            try 
+            {
+                List<Path> small = new ArrayList<>(), big = new ArrayList<>();
+                new FIO().Walk(ROOT).threads(threads).each(p -> {
+                    String name = p.getFileName().toString();
+                    if (name.startsWith(PART_PREFIX))
+                    {
+                        // Left by a crashed run; its source is still in place
+                        p.toFile().delete();
+                        return;
+                    }
+                    if (name.endsWith(EXTEN) != !enc)
+                        return;
+                    boolean is_big = p.toFile().length() >= large;
+                    synchronized (small)
+                    {
+                        (is_big ? big : small).add(p);
+                    }
+                });
+
+                AtomicBoolean stop = new AtomicBoolean();
+                ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+                    Thread t = new Thread(r, "Jcrypt-Batch");
+                    t.setDaemon(true);
+                    return t;
+                });
+                List<Future<?>> jobs = new ArrayList<>();
+                try 
+                {
+                    for (Path p : small)
+                        jobs.add(pool.submit(() -> one(p.toFile(), enc, 1, stop)));
+                    for (Future<?> f : jobs)
+                        f.get();
+                } catch (InterruptedException e) 
+                {
+                    stop.set(true);
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) 
+                {
+                    // Stop the rest of the run and report the first failure
+                    stop.set(true);
+                    for (Future<?> f : jobs)
+                        f.cancel(false);
+                    if (e.getCause() instanceof Error)
+                        throw (Error) e.getCause();
+                    throw (RuntimeException) e.getCause();
+                } finally 
+                {
+                    pool.shutdown();
+                }
+
+                for (Path p : big)
+                    one(p.toFile(), enc, threads, stop);
+                return FILES.sum() - before;
+            } finally 
+            {
+                end = System.nanoTime();
+            }
+        }
+
+        /** Process one file: write a temp file, rename it into place, remove the source. */
+        private 
+        void one(File in, boolean enc, int workers, AtomicBoolean stop)
+        {
+            if (cancelled || stop.get())
+                return;
+
+            String name = in.getName();
+            File out  = new File(in.getParent(), enc ? name + EXTEN : name.substring(0, name.length() - EXTEN.length()));
+            File part = new File(in.getParent(), PART_PREFIX + out.getName());
+            long t0   = System.nanoTime();
+            long size = in.length();
+            try 
+            {
+                // One worker seals on this thread; see run_chunks
+                if (enc)
+                    enc_gcm(in, part, SK, NO_SALT, GCM_CHUNK, workers);   // fresh file nonce and subkey per file
+                else
+                    dec_gcm(in, part, SK, workers);
+                Files.move(part.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(in.toPath());
+            } catch (Exception e) 
+            {
+                part.delete();
+                FAILED.increment();
+                e.printStackTrace();
+                return;
+            }
+
+            BYTES.add(size);
+            FILES.increment();
+            if (sink != null)
+                sink.accept(new Done(in, size, System.nanoTime() - t0));
+        }
+    }
+
+    /**
+     * Report for one file finished by a Batch.
+     * 
+     * @author CJ Remillard
+     * @version 1.0
+     */
+    public static 
+    class Done
+    {
+        /** The source file */
+        public final File file;
+        /** Source size in bytes */
+        public final long bytes;
+        /** Time taken in nanoseconds */
+        public final long nanos;
+
+        Done(File file, long bytes, long nanos)
+        {
+            this.file  = file;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return Throughput for this file in MB/s
+         */
+        public 
+        double rate()
+        {
+            return nanos > 0 ? bytes / 1e6 / (nanos / 1e9) : 0;
+        }
+    }
+
+    /** One unit of chunk work, indexed from 0. */
+    private interface ChunkTask 
+    {
+        byte[] apply(long idx) throws Exception;
+    }
+
+    /** Consumer of finished chunks, called in index order. */
+    private interface ChunkSink 
+    {
+        void accept(byte[] buf) throws Exception;
+    }
+
+    /**
+     * Run n chunk tasks on a pool and pass their results to the sink in order,
+     * keeping at most 2 * threads chunks in flight. With one thread or one
+     * chunk the tasks run on the calling thread, so no pool is built.
+     */
+    private static 
+    void run_chunks(long n, int threads, ChunkTask task, ChunkSink sink) 
+    throws Exception 
+    {
+        if (threads == 1 || n == 1)
+        {
+            for (long i = 0; i < n; i++)
+                sink.accept(task.apply(i));
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "Jcrypt-GCM");
+            t.setDaemon(true);
+            return t;
+        });
+        ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+        try 
+        {
+            for (long i = 0; i < n; i++)
+            {
+                final long idx = i;
+                pending.add(pool.submit(() -> task.apply(idx)));
+                while (pending.size() >= 2 * threads)
+                    sink.accept(take(pending));
+            }
+            while (!pending.isEmpty())
+                sink.accept(take(pending));
+        } finally 
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Wait for the oldest chunk and unwrap its failure. */
+    private static 
+    byte[] take(ArrayDeque<Future<byte[]>> pending) 
+    throws Exception 
+    {
+        try 
+        {
+            return pending.poll().get();
+        } catch (ExecutionException e) 
+        {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw e;
+        }
+    }
+
+    /** Build a chunked file header with a fresh file nonce and nonce prefix. */
+    private static 
+    byte[] header(byte[] salt, int chunk, int method)
+    {
+        byte[] rnd = new byte[20];
+        RNG.nextBytes(rnd);
+        ByteBuffer b = ByteBuffer.allocate(GCM_HEADER);
+        b.put(MAGIC).put((byte) VERSION).put((byte) method).put(salt).put(rnd).putInt(chunk);
+        return b.array();
+    }
+
+    /**
+     * Derive the key that seals one file's chunks: HKDF-SHA256 (RFC 5869)
+     * of the caller's key, with the header's file nonce as salt.
+     * 
+     * @param sk Caller's AES key (16, 24 or 32 bytes)
+     * @param header The file's header
+     * @return AES key of the same length as sk
+     */
+    private static 
+    SecretKey file_key(SecretKey sk, byte[] header) 
+    throws IOException
+    {
+        byte[] ikm = sk.getEncoded();
+        byte[] prk = null, okm = null;
+        try 
+        {
+            if (ikm == null || (ikm.length != 16 && ikm.length != 24 && ikm.length != 32))
+                throw new InvalidKeyException("AES key of 16, 24 or 32 bytes required");
+            // Extract
+            Mac mac = CPool.mac("HmacSHA256", new SecretKeySpec(header, H_NONCE, 16, "HmacSHA256"));
+            prk = mac.doFinal(ikm);
+            // Expand: one block covers every AES key length
+            mac = CPool.mac("HmacSHA256", new SecretKeySpec(prk, "HmacSHA256"));
+            mac.update(SUBKEY_INFO);
+            mac.update((byte) 1);
+            okm = mac.doFinal();
+            return new SecretKeySpec(okm, 0, ikm.length, "AES");
+        } catch (GeneralSecurityException e) 
+        {
+            throw new IOException("Cannot derive file key", e);
+        } finally 
+        {
+            if (ikm != null)
+                Arrays.fill(ikm, (byte) 0);
+            if (prk != null)
+                Arrays.fill(prk, (byte) 0);
+            if (okm != null)
+                Arrays.fill(okm, (byte) 0);
+        }
+    }
+
+    /**
+     * Validate a chunked file header.
+     * 
+     * @return The chunk size it declares
+     * @throws IOException If the header is not a supported chunked header
+     */
+    private static 
+    int check_header(byte[] header) 
+    throws IOException 
+    {
+        if (!Arrays.equals(header, 0, 4, MAGIC, 0, 4))
+            throw new IOException("Not a chunked AES-GCM file");
+        if (header[4] != VERSION)
+            throw new IOException("Unsupported chunked AES-GCM version: " + header[4]);
+        if (header[5] != Z_NONE && header[5] != Z_DEFLATE)
+            throw new IOException("Unknown compression method: " + header[5]);
+        int chunk = ByteBuffer.wrap(header, H_CHUNK, 4).getInt();
+        if (chunk <= 0 || chunk > Integer.MAX_VALUE - GCM_TAG)
+            throw new IOException("Invalid chunk size: " + chunk);
+        return chunk;
+    }
+
+    /**
+     * Number of chunks in a chunked file of the given total size.
+     * 
+     * @throws IOException If the size cannot be a whole number of chunks
+     */
+    private static 
+    long chunk_count(long file_size, int chunk) 
+    throws IOException 
+    {
+        long body   = file_size - GCM_HEADER;
+        long stride = (long) chunk + GCM_TAG;
+        long n      = (body + stride - 1) / stride;
+        if (body < GCM_TAG || body - (n - 1) * stride < GCM_TAG)
+            throw new IOException("Truncated chunked AES-GCM file");
+        return n;
+    }
+
+    /** Get this thread's pooled GCM cipher, initialised for chunk idx. */
+    private static 
+    Cipher gcm_cipher(int mode, SecretKey sk, byte[] prefix, long idx, byte[] header, boolean last) 
+    throws GeneralSecurityException 
+    {
+        Cipher c = CPool.cipher(GCM);
+        gcm_init(c, mode, sk, prefix, idx, header, last);
+        return c;
+    }
+
+    /** Initialise a GCM cipher for chunk idx: nonce, header AAD and last-chunk flag. */
+    private static 
+    void gcm_init(Cipher c, int mode, SecretKey sk, byte[] prefix, long idx, byte[] header, boolean last) 
+    throws GeneralSecurityException 
+    {
+        byte[] nonce = new byte[12];
+        System.arraycopy(prefix, 0, nonce, 0, 4);
+        for (int i = 0; i < 8; i++)
+            nonce[4 + i] = (byte) (idx >>> (56 - 8 * i));
+
+        c.init(mode, sk, new GCMParameterSpec(GCM_TAG * 8, nonce));
+        c.updateAAD(header);
+        c.updateAAD(new byte[] { (byte) (last ? 1 : 0) });
+    }
+
+    /** Read until the buffer is full, starting at pos. */
+    private static 
+    void read_full(FileChannel ch, ByteBuffer b, long pos) 
+    throws IOException 
+    {
+        while (b.hasRemaining())
+        {
+            int r = ch.read(b, pos);
+            if (r < 0)
+                throw new EOFException("Unexpected end of file");
+            pos += r;
+        }
+    }
+
+    /** Write the whole buffer at the channel's position. */
+    private static 
+    void write_full(FileChannel ch, ByteBuffer b) 
+    throws IOException 
+    {
+        while (b.hasRemaining())
+            ch.write(b);
     }
 }
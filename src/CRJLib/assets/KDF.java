@@ -0,0 +1,700 @@
+/*
+ * Copyright (c) 2025 CJ Remillard
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package CRJLib.assets;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * KDF class is a dedicated PBKDF2 engine for the password paths in PHash
+ * and Jcrypt. The JCE path re-hashes the HMAC key pads on every iteration
+ * (four compressions per HMAC); here the inner and outer pad states are
+ * compressed once per call, so each iteration costs two.
+ * Output is bit-for-bit identical to SecretKeyFactory "PBKDF2WithHmacSHAx"
+ * (password chars are encoded as UTF-8, as the JCE does).
+ * 
+ * There are two engines. The primitive engine keeps the hash state in
+ * int/long arrays and allocates nothing per iteration. The digest engine
+ * clones two primed MessageDigests per iteration, which allocates, but
+ * lets the JVM's SHA intrinsics do the compression. Which one is faster
+ * depends on the CPU and hash, so the first long derivation for each hash
+ * times both and the winner is kept for the life of the process.
+ * 
+ * Features:
+ * - PBKDF2 with HMAC-SHA1, HMAC-SHA256 and HMAC-SHA512
+ * - Precomputed HMAC pad state, reused across iterations and blocks
+ * - Allocation-free primitive engine on int/long state
+ * - Digest engine on primed MessageDigest clones, for SHA intrinsics
+ * - Per-hash engine choice, measured once per process
+ * - Accepts JCE algorithm names, so it drops in for SecretKeyFactory
+ * 
+ * @author CJ Remillard
+ * @version 1.0
+ */
+public class KDF 
+{
+    // FIELDS //
+    //
+    public static final String SHA1   = "PBKDF2WithHmacSHA1";
+    public static final String SHA256 = "PBKDF2WithHmacSHA256";
+    public static final String SHA512 = "PBKDF2WithHmacSHA512";
+    //
+    private static final int   PROBE_ITER = 1 << 12;    // iterations per probe run
+    private static final int   PROBE_RUNS = 6;          // runs per engine, best kept
+    private static final int   DIGEST = 1, PRIMITIVE = 2;
+    // Engine per hash (SHA-1, SHA-256, SHA-512), 0 until probed. A race
+    // only probes twice; either result is a valid choice.
+    private static final int[] ENGINE = new int[3];
+    //
+    private static final int[] IV1 = {
+        0x67452301, 0xefcdab89, 0x98badcfe, 0x10325476, 0xc3d2e1f0
+    };
+    private static final int[] IV256 = {
+        0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a,
+        0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+    private static final long[] IV512 = {
+        0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
+        0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L
+    };
+    private static final int[] K256 = {
+        0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+        0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+        0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+        0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+        0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+        0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+        0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+        0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+    private static final long[] K512 = {
+        0x428a2f98d728ae22L, 0x7137449123ef65cdL, 0xb5c0fbcfec4d3b2fL, 0xe9b5dba58189dbbcL,
+        0x3956c25bf348b538L, 0x59f111f1b605d019L, 0x923f82a4af194f9bL, 0xab1c5ed5da6d8118L,
+        0xd807aa98a3030242L, 0x12835b0145706fbeL, 0x243185be4ee4b28cL, 0x550c7dc3d5ffb4e2L,
+        0x72be5d74f27b896fL, 0x80deb1fe3b1696b1L, 0x9bdc06a725c71235L, 0xc19bf174cf692694L,
+        0xe49b69c19ef14ad2L, 0xefbe4786384f25e3L, 0x0fc19dc68b8cd5b5L, 0x240ca1cc77ac9c65L,
+        0x2de92c6f592b0275L, 0x4a7484aa6ea6e483L, 0x5cb0a9dcbd41fbd4L, 0x76f988da831153b5L,
+        0x983e5152ee66dfabL, 0xa831c66d2db43210L, 0xb00327c898fb213fL, 0xbf597fc7beef0ee4L,
+        0xc6e00bf33da88fc2L, 0xd5a79147930aa725L, 0x06ca6351e003826fL, 0x142929670a0e6e70L,
+        0x27b70a8546d22ffcL, 0x2e1b21385c26c926L, 0x4d2c6dfc5ac42aedL, 0x53380d139d95b3dfL,
+        0x650a73548baf63deL, 0x766a0abb3c77b2a8L, 0x81c2c92e47edaee6L, 0x92722c851482353bL,
+        0xa2bfe8a14cf10364L, 0xa81a664bbc423001L, 0xc24b8b70d0f89791L, 0xc76c51a30654be30L,
+        0xd192e819d6ef5218L, 0xd69906245565a910L, 0xf40e35855771202aL, 0x106aa07032bbd1b8L,
+        0x19a4c116b8d2d0c8L, 0x1e376c085141ab53L, 0x2748774cdf8eeb99L, 0x34b0bcb5e19b48a8L,
+        0x391c0cb3c5c95a63L, 0x4ed8aa4ae3418acbL, 0x5b9cca4f7763e373L, 0x682e6ff3d6b2b8a3L,
+        0x748f82ee5defb2fcL, 0x78a5636f43172f60L, 0x84c87814a1f0ab72L, 0x8cc702081a6439ecL,
+        0x90befffa23631e28L, 0xa4506cebde82bde9L, 0xbef9a3f7b2c67915L, 0xc67178f2e372532bL,
+        0xca273eceea26619cL, 0xd186b8c721c0c207L, 0xeada7dd6cde0eb1eL, 0xf57d4f7fee6ed178L,
+        0x06f067aa72176fbaL, 0x0a637dc5a2c898a6L, 0x113f9804bef90daeL, 0x1b710b35131c471bL,
+        0x28db77f523047d84L, 0x32caab7b40c72493L, 0x3c9ebe0a15c9bebcL, 0x431d67c49c100d4cL,
+        0x4cc5d4becb3e42b6L, 0x597f299cfc657e2aL, 0x5fcb6fab3ad6faecL, 0x6c44198c4a475817L
+    };
+
+
+    // PBKDF2 //
+    //
+    /**
+     * Derive a key with PBKDF2. Chars are encoded as UTF-8 first.
+     * 
+     * @param algo SHA1, SHA256 or SHA512 (the JCE algorithm names)
+     * @param password Password characters
+     * @param salt Salt bytes
+     * @param iterations Iteration count (at least 1)
+     * @param bits Derived key length in bits (a multiple of 8)
+     * @return Derived key bytes
+     * @throws IllegalArgumentException On an unknown algorithm or bad parameters
+     */
+    public static 
+    byte[] pbkdf2(String algo, char[] password, byte[] salt, int iterations, int bits)
+    {
+        ByteBuffer bb = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] pw = new byte[bb.remaining()];
+        bb.get(pw);
+        try 
+        {
+            return pbkdf2(algo, pw, salt, iterations, bits);
+        } finally 
+        {
+            Arrays.fill(pw, (byte) 0);
+            if (bb.hasArray())
+                Arrays.fill(bb.array(), (byte) 0);
+        }
+    }
+
+    /**
+     * Derive a key with PBKDF2 from raw password bytes.
+     * 
+     * @param algo SHA1, SHA256 or SHA512 (the JCE algorithm names)
+     * @param password Password bytes
+     * @param salt Salt bytes
+     * @param iterations Iteration count (at least 1)
+     * @param bits Derived key length in bits (a multiple of 8)
+     * @return Derived key bytes
+     * @throws IllegalArgumentException On an unknown algorithm or bad parameters
+     */
+    public static 
+    byte[] pbkdf2(String algo, byte[] password, byte[] salt, int iterations, int bits)
+    {
+        if (bits <= 0 || (bits & 7) != 0)
+            throw new IllegalArgumentException("bits: " + bits);
+        byte[] dk = new byte[bits >> 3];
+        pbkdf2(algo, password, password.length, salt, iterations, dk);
+        return dk;
+    }
+
+    /**
+     * Derive a key with PBKDF2 into a caller-supplied array, from the first
+     * len bytes of a reusable password buffer. The primitive engine's
+     * garbage is a few block-sized scratch arrays per call; the digest
+     * engine also clones two digests per iteration. The first call for a
+     * hash with at least PROBE_ITER iterations picks the engine; shorter
+     * calls before that use the digest engine.
+     * 
+     * @param algo SHA1, SHA256 or SHA512 (the JCE algorithm names)
+     * @param password Password bytes; only the first len are used
+     * @param len Password length in bytes
+     * @param salt Salt bytes
+     * @param iterations Iteration count (at least 1)
+     * @param dk Receives the derived key; its length sets the key length
+     * @throws IllegalArgumentException On an unknown algorithm or bad parameters
+     */
+    public static 
+    void pbkdf2(String algo, byte[] password, int len, byte[] salt, int iterations, byte[] dk)
+    {
+        if (iterations < 1)
+            throw new IllegalArgumentException("iterations: " + iterations);
+        if (dk.length == 0)
+            throw new IllegalArgumentException("dk: empty");
+        if (len < 0 || len > password.length)
+            throw new IllegalArgumentException("len: " + len);
+
+        int h;
+        switch (algo) 
+        {
+            case SHA1:   h = 0; break;
+            case SHA256: h = 1; break;
+            case SHA512: h = 2; break;
+            default: throw new IllegalArgumentException("Unsupported algorithm: " + algo);
+        }
+
+        int engine = ENGINE[h];
+        if (engine == 0 && iterations >= PROBE_ITER)
+            engine = ENGINE[h] = probe(h);
+        if (engine != PRIMITIVE && digest(h, password, len, salt, iterations, dk))
+            return;
+
+        byte[] pw = len == password.length ? password : Arrays.copyOf(password, len);
+        primitive(h, pw, salt, iterations, dk);
+        if (pw != password)
+            Arrays.fill(pw, (byte) 0);
+    }
+
+    /**
+     * Time both engines on a throwaway password and return the faster.
+     * The runs alternate, and the best of each is kept so JIT warm-up and
+     * noise do not decide it.
+     */
+    private static 
+    int probe(int h)
+    {
+        byte[] pw   = "probe".getBytes(StandardCharsets.UTF_8);
+        byte[] salt = new byte[16];
+        byte[] dk   = new byte[h == 0 ? 20 : h == 1 ? 32 : 64];
+        long by_digest = Long.MAX_VALUE, by_primitive = Long.MAX_VALUE;
+        for (int r = 0; r < PROBE_RUNS; r++)
+        {
+            long t0 = System.nanoTime();
+            if (!digest(h, pw, pw.length, salt, PROBE_ITER, dk))
+                return PRIMITIVE;
+            long t1 = System.nanoTime();
+            primitive(h, pw, salt, PROBE_ITER, dk);
+            long t2 = System.nanoTime();
+            by_digest    = Math.min(by_digest, t1 - t0);
+            by_primitive = Math.min(by_primitive, t2 - t1);
+        }
+        return by_primitive < by_digest ? PRIMITIVE : DIGEST;
+    }
+
+    /**
+     * Run the digest engine for hash h.
+     * 
+     * @return false if the provider has no cloneable digest for it
+     */
+    private static 
+    boolean digest(int h, byte[] pw, int len, byte[] salt, int iterations, byte[] dk)
+    {
+        try 
+        {
+            String md = h == 0 ? "SHA-1" : h == 1 ? "SHA-256" : "SHA-512";
+            pbkdf2_md(CPool.md(md), h == 2 ? 128 : 64, pw, len, salt, iterations, dk);
+            return true;
+        } catch (NoSuchAlgorithmException | CloneNotSupportedException ex) 
+        {
+            return false;
+        }
+    }
+
+    /** Run the primitive engine for hash h. */
+    private static 
+    void primitive(int h, byte[] pw, byte[] salt, int iterations, byte[] dk)
+    {
+        if (h == 2)
+            pbkdf2_64(pw, salt, iterations, dk);
+        else 
+            pbkdf2_32(h == 1, pw, salt, iterations, dk);
+    }
+
+    /**
+     * PBKDF2 on a provider MessageDigest (the digest engine). The ipad and opad blocks are fed
+     * once into two digests; every HMAC after that starts from a clone of
+     * them, which copies a few words of state instead of compressing a block.
+     * 
+     * @param base This thread's pooled digest for the hash
+     * @param block Hash block size in bytes
+     * @throws CloneNotSupportedException If the provider's digest cannot be cloned
+     */
+    private static 
+    void pbkdf2_md(MessageDigest base, int block, byte[] pw, int plen, byte[] salt, int iterations, byte[] dk)
+    throws CloneNotSupportedException
+    {
+        final int hlen = base.getDigestLength();
+        byte[] key = pw;
+        int klen = plen;
+        if (plen > block)
+        {
+            base.update(pw, 0, plen);
+            key = base.digest();
+            klen = key.length;
+        }
+        byte[] pad = new byte[block];
+
+        for (int i = 0; i < block; i++)
+            pad[i] = (byte) ((i < klen ? key[i] : 0) ^ 0x36);
+        base.update(pad);
+        MessageDigest istate = (MessageDigest) base.clone();
+        base.reset();
+
+        for (int i = 0; i < block; i++)
+            pad[i] = (byte) ((i < klen ? key[i] : 0) ^ 0x5c);
+        base.update(pad);
+        MessageDigest ostate = (MessageDigest) base.clone();
+        base.reset();
+        if (key != pw)
+            Arrays.fill(key, (byte) 0);
+        Arrays.fill(pad, (byte) 0);
+
+        byte[] ctr = new byte[4];
+        byte[] u = new byte[hlen];
+        byte[] t = new byte[hlen];
+        try 
+        {
+            for (int b = 1, off = 0; off < dk.length; b++, off += hlen)
+            {
+                ctr[0] = (byte) (b >>> 24);
+                ctr[1] = (byte) (b >>> 16);
+                ctr[2] = (byte) (b >>> 8);
+                ctr[3] = (byte) b;
+
+                // U1 = HMAC(salt || INT(b))
+                MessageDigest d = (MessageDigest) istate.clone();
+                d.update(salt);
+                d.update(ctr);
+                d.digest(u, 0, hlen);
+                d = (MessageDigest) ostate.clone();
+                d.update(u);
+                d.digest(u, 0, hlen);
+                System.arraycopy(u, 0, t, 0, hlen);
+
+                for (int it = 1; it < iterations; it++)
+                {
+                    d = (MessageDigest) istate.clone();
+                    d.update(u);
+                    d.digest(u, 0, hlen);
+                    d = (MessageDigest) ostate.clone();
+                    d.update(u);
+                    d.digest(u, 0, hlen);
+                    for (int k = 0; k < hlen; k++)
+                        t[k] ^= u[k];
+                }
+                System.arraycopy(t, 0, dk, off, Math.min(hlen, dk.length - off));
+            }
+        } catch (DigestException ex) 
+        {
+            throw new IllegalStateException("Digest output", ex);
+        } finally 
+        {
+            istate.reset();
+            ostate.reset();
+            Arrays.fill(u, (byte) 0);
+            Arrays.fill(t, (byte) 0);
+        }
+    }
+
+
+    // PRIMITIVE ENGINE, 32-BIT WORDS (SHA-1, SHA-256) //
+    //
+    /**
+     * PBKDF2 over HMAC-SHA1 or HMAC-SHA256 (64-byte blocks, big-endian int words).
+     * Needs nothing from the provider and allocates nothing per iteration;
+     * each U after the first is two compressions on the work arrays.
+     */
+    private static 
+    void pbkdf2_32(boolean s256, byte[] pw, byte[] salt, int iterations, byte[] dk)
+    {
+        final int[] iv = s256 ? IV256 : IV1;
+        final int hw = iv.length;       // words per digest
+        final int hlen = hw * 4;
+        int[] w = new int[s256 ? 64 : 80];
+
+        // HMAC key: hashed if longer than a block, then zero padded
+        byte[] key = pw.length > 64 ? to_bytes(hash_32(s256, iv.clone(), 0, pw, w)) : pw;
+        byte[] pad = new byte[64];
+        int[] blk = new int[16];
+
+        int[] istate = iv.clone();
+        for (int i = 0; i < 64; i++)
+            pad[i] = (byte) ((i < key.length ? key[i] : 0) ^ 0x36);
+        words(pad, 0, blk);
+        compress_32(s256, istate, blk, w);
+
+        int[] ostate = iv.clone();
+        for (int i = 0; i < 64; i++)
+            pad[i] = (byte) ((i < key.length ? key[i] : 0) ^ 0x5c);
+        words(pad, 0, blk);
+        compress_32(s256, ostate, blk, w);
+        if (key != pw)
+            Arrays.fill(key, (byte) 0);
+        Arrays.fill(pad, (byte) 0);
+
+        // salt || INT(i)
+        byte[] msg = Arrays.copyOf(salt, salt.length + 4);
+        int[] h = new int[hw];
+        int[] t = new int[hw];
+
+        for (int b = 1, off = 0; off < dk.length; b++, off += hlen)
+        {
+            msg[salt.length]     = (byte) (b >>> 24);
+            msg[salt.length + 1] = (byte) (b >>> 16);
+            msg[salt.length + 2] = (byte) (b >>> 8);
+            msg[salt.length + 3] = (byte) b;
+
+            // U1 = HMAC(salt || INT(b))
+            int[] u = hash_32(s256, istate.clone(), 64, msg, w);
+            u = hash_32(s256, ostate.clone(), 64, to_bytes(u), w);
+            System.arraycopy(u, 0, h, 0, hw);
+            System.arraycopy(u, 0, t, 0, hw);
+
+            // Every later U is one hlen-byte message after the pad block, so
+            // the padding and bit length of the block never change
+            Arrays.fill(blk, 0);
+            blk[hw] = 0x80000000;
+            blk[15] = (64 + hlen) * 8;
+
+            for (int it = 1; it < iterations; it++)
+            {
+                System.arraycopy(h, 0, blk, 0, hw);
+                System.arraycopy(istate, 0, h, 0, hw);
+                compress_32(s256, h, blk, w);
+                System.arraycopy(h, 0, blk, 0, hw);
+                System.arraycopy(ostate, 0, h, 0, hw);
+                compress_32(s256, h, blk, w);
+                for (int k = 0; k < hw; k++)
+                    t[k] ^= h[k];
+            }
+
+            for (int k = 0; k < hw && off + 4 * k < dk.length; k++)
+                for (int j = 0; j < 4 && off + 4 * k + j < dk.length; j++)
+                    dk[off + 4 * k + j] = (byte) (t[k] >>> (24 - 8 * j));
+        }
+        Arrays.fill(istate, 0);
+        Arrays.fill(ostate, 0);
+        Arrays.fill(t, 0);
+    }
+
+    /**
+     * Hash msg with Merkle-Damgard padding, continuing from state h after
+     * prefix bytes have already been compressed.
+     */
+    private static 
+    int[] hash_32(boolean s256, int[] h, long prefix, byte[] msg, int[] w)
+    {
+        int n = ((msg.length + 8) / 64 + 1) * 64;
+        byte[] buf = Arrays.copyOf(msg, n);
+        buf[msg.length] = (byte) 0x80;
+        long bits = (prefix + msg.length) * 8;
+        for (int i = 0; i < 8; i++)
+            buf[n - 1 - i] = (byte) (bits >>> (8 * i));
+
+        int[] blk = new int[16];
+        for (int off = 0; off < n; off += 64)
+        {
+            words(buf, off, blk);
+            compress_32(s256, h, blk, w);
+        }
+        return h;
+    }
+
+    private static 
+    void compress_32(boolean s256, int[] h, int[] blk, int[] w)
+    {
+        if (s256)
+            sha256(h, blk, w);
+        else 
+            sha1(h, blk, w);
+    }
+
+    /**
+     * SHA-1 compression of one 16-word block into h[0..4].
+     */
+    private static 
+    void sha1(int[] h, int[] blk, int[] w)
+    {
+        System.arraycopy(blk, 0, w, 0, 16);
+        for (int i = 16; i < 80; i++)
+            w[i] = Integer.rotateLeft(w[i - 3] ^ w[i - 8] ^ w[i - 14] ^ w[i - 16], 1);
+
+        int a = h[0], b = h[1], c = h[2], d = h[3], e = h[4];
+        int i = 0;
+        for (; i < 20; i++)
+        {
+            int x = Integer.rotateLeft(a, 5) + ((b & c) | (~b & d)) + e + 0x5a827999 + w[i];
+            e = d; d = c; c = Integer.rotateLeft(b, 30); b = a; a = x;
+        }
+        for (; i < 40; i++)
+        {
+            int x = Integer.rotateLeft(a, 5) + (b ^ c ^ d) + e + 0x6ed9eba1 + w[i];
+            e = d; d = c; c = Integer.rotateLeft(b, 30); b = a; a = x;
+        }
+        for (; i < 60; i++)
+        {
+            int x = Integer.rotateLeft(a, 5) + ((b & c) | (b & d) | (c & d)) + e + 0x8f1bbcdc + w[i];
+            e = d; d = c; c = Integer.rotateLeft(b, 30); b = a; a = x;
+        }
+        for (; i < 80; i++)
+        {
+            int x = Integer.rotateLeft(a, 5) + (b ^ c ^ d) + e + 0xca62c1d6 + w[i];
+            e = d; d = c; c = Integer.rotateLeft(b, 30); b = a; a = x;
+        }
+        h[0] += a; h[1] += b; h[2] += c; h[3] += d; h[4] += e;
+    }
+
+    /**
+     * SHA-256 compression of one 16-word block into h[0..7].
+     */
+    private static 
+    void sha256(int[] h, int[] blk, int[] w)
+    {
+        System.arraycopy(blk, 0, w, 0, 16);
+        for (int i = 16; i < 64; i++)
+        {
+            int x = w[i - 15], y = w[i - 2];
+            int s0 = Integer.rotateRight(x, 7) ^ Integer.rotateRight(x, 18) ^ (x >>> 3);
+            int s1 = Integer.rotateRight(y, 17) ^ Integer.rotateRight(y, 19) ^ (y >>> 10);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+
+        int a = h[0], b = h[1], c = h[2], d = h[3];
+        int e = h[4], f = h[5], g = h[6], k = h[7];
+        for (int i = 0; i < 64; i++)
+        {
+            int t1 = k + (Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25))
+                   + ((e & f) ^ (~e & g)) + K256[i] + w[i];
+            int t2 = (Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22))
+                   + ((a & b) ^ (a & c) ^ (b & c));
+            k = g; g = f; f = e; e = d + t1;
+            d = c; c = b; b = a; a = t1 + t2;
+        }
+        h[0] += a; h[1] += b; h[2] += c; h[3] += d;
+        h[4] += e; h[5] += f; h[6] += g; h[7] += k;
+    }
+
+    private static 
+    void words(byte[] b, int off, int[] blk)
+    {
+        for (int i = 0; i < 16; i++, off += 4)
+            blk[i] = (b[off] << 24) | ((b[off + 1] & 0xff) << 16) | ((b[off + 2] & 0xff) << 8) | (b[off + 3] & 0xff);
+    }
+
+    private static 
+    byte[] to_bytes(int[] h)
+    {
+        byte[] b = new byte[h.length * 4];
+        for (int i = 0; i < h.length; i++)
+        {
+            b[4 * i]     = (byte) (h[i] >>> 24);
+            b[4 * i + 1] = (byte) (h[i] >>> 16);
+            b[4 * i + 2] = (byte) (h[i] >>> 8);
+            b[4 * i + 3] = (byte) h[i];
+        }
+        return b;
+    }
+
+
+    // PRIMITIVE ENGINE, 64-BIT WORDS (SHA-512) //
+    //
+    /**
+     * PBKDF2 over HMAC-SHA512 (128-byte blocks, big-endian long words).
+     */
+    private static 
+    void pbkdf2_64(byte[] pw, byte[] salt, int iterations, byte[] dk)
+    {
+        final int hw = 8;
+        final int hlen = 64;
+        long[] w = new long[80];
+
+        byte[] key = pw.length > 128 ? to_bytes(hash_64(IV512.clone(), 0, pw, w)) : pw;
+        byte[] pad = new byte[128];
+        long[] blk = new long[16];
+
+        long[] istate = IV512.clone();
+        for (int i = 0; i < 128; i++)
+            pad[i] = (byte) ((i < key.length ? key[i] : 0) ^ 0x36);
+        words(pad, 0, blk);
+        sha512(istate, blk, w);
+
+        long[] ostate = IV512.clone();
+        for (int i = 0; i < 128; i++)
+            pad[i] = (byte) ((i < key.length ? key[i] : 0) ^ 0x5c);
+        words(pad, 0, blk);
+        sha512(ostate, blk, w);
+        if (key != pw)
+            Arrays.fill(key, (byte) 0);
+        Arrays.fill(pad, (byte) 0);
+
+        byte[] msg = Arrays.copyOf(salt, salt.length + 4);
+        long[] h = new long[hw];
+        long[] t = new long[hw];
+
+        for (int b = 1, off = 0; off < dk.length; b++, off += hlen)
+        {
+            msg[salt.length]     = (byte) (b >>> 24);
+            msg[salt.length + 1] = (byte) (b >>> 16);
+            msg[salt.length + 2] = (byte) (b >>> 8);
+            msg[salt.length + 3] = (byte) b;
+
+            long[] u = hash_64(istate.clone(), 128, msg, w);
+            u = hash_64(ostate.clone(), 128, to_bytes(u), w);
+            System.arraycopy(u, 0, h, 0, hw);
+            System.arraycopy(u, 0, t, 0, hw);
+
+            Arrays.fill(blk, 0);
+            blk[hw] = 0x8000000000000000L;
+            blk[15] = (128 + hlen) * 8;
+
+            for (int it = 1; it < iterations; it++)
+            {
+                System.arraycopy(h, 0, blk, 0, hw);
+                System.arraycopy(istate, 0, h, 0, hw);
+                sha512(h, blk, w);
+                System.arraycopy(h, 0, blk, 0, hw);
+                System.arraycopy(ostate, 0, h, 0, hw);
+                sha512(h, blk, w);
+                for (int k = 0; k < hw; k++)
+                    t[k] ^= h[k];
+            }
+
+            for (int k = 0; k < hw && off + 8 * k < dk.length; k++)
+                for (int j = 0; j < 8 && off + 8 * k + j < dk.length; j++)
+                    dk[off + 8 * k + j] = (byte) (t[k] >>> (56 - 8 * j));
+        }
+        Arrays.fill(istate, 0);
+        Arrays.fill(ostate, 0);
+        Arrays.fill(t, 0);
+    }
+
+    private static 
+    long[] hash_64(long[] h, long prefix, byte[] msg, long[] w)
+    {
+        int n = ((msg.length + 16) / 128 + 1) * 128;
+        byte[] buf = Arrays.copyOf(msg, n);
+        buf[msg.length] = (byte) 0x80;
+        long bits = (prefix + msg.length) * 8;
+        for (int i = 0; i < 8; i++)
+            buf[n - 1 - i] = (byte) (bits >>> (8 * i));
+
+        long[] blk = new long[16];
+        for (int off = 0; off < n; off += 128)
+        {
+            words(buf, off, blk);
+            sha512(h, blk, w);
+        }
+        return h;
+    }
+
+    /**
+     * SHA-512 compression of one 16-word block into h[0..7].
+     */
+    private static 
+    void sha512(long[] h, long[] blk, long[] w)
+    {
+        System.arraycopy(blk, 0, w, 0, 16);
+        for (int i = 16; i < 80; i++)
+        {
+            long x = w[i - 15], y = w[i - 2];
+            long s0 = Long.rotateRight(x, 1) ^ Long.rotateRight(x, 8) ^ (x >>> 7);
+            long s1 = Long.rotateRight(y, 19) ^ Long.rotateRight(y, 61) ^ (y >>> 6);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+
+        long a = h[0], b = h[1], c = h[2], d = h[3];
+        long e = h[4], f = h[5], g = h[6], k = h[7];
+        for (int i = 0; i < 80; i++)
+        {
+            long t1 = k + (Long.rotateRight(e, 14) ^ Long.rotateRight(e, 18) ^ Long.rotateRight(e, 41))
+                    + ((e & f) ^ (~e & g)) + K512[i] + w[i];
+            long t2 = (Long.rotateRight(a, 28) ^ Long.rotateRight(a, 34) ^ Long.rotateRight(a, 39))
+                    + ((a & b) ^ (a & c) ^ (b & c));
+            k = g; g = f; f = e; e = d + t1;
+            d = c; c = b; b = a; a = t1 + t2;
+        }
+        h[0] += a; h[1] += b; h[2] += c; h[3] += d;
+        h[4] += e; h[5] += f; h[6] += g; h[7] += k;
+    }
+
+    private static 
+    void words(byte[] b, int off, long[] blk)
+    {
+        for (int i = 0; i < 16; i++, off += 8)
+        {
+            long x = 0;
+            for (int j = 0; j < 8; j++)
+                x = (x << 8) | (b[off + j] & 0xff);
+            blk[i] = x;
+        }
+    }
+
+    private static 
+    byte[] to_bytes(long[] h)
+    {
+        byte[] b = new byte[h.length * 8];
+        for (int i = 0; i < h.length; i++)
+            for (int j = 0; j < 8; j++)
+                b[8 * i + j] = (byte) (h[i] >>> (56 - 8 * j));
+        return b;
+    }
+}// END OF CLASS //
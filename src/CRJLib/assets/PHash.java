@@ -22,17 +22,21 @@
 
 package CRJLib.assets;
 
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.KeySpec;
 import java.util.Arrays;
 import java.util.Base64;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-//
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * PHash class provides secure password hashing functionality using PBKDF2.
@@ -40,11 +44,14 @@ import javax.crypto.spec.PBEKeySpec;
  * to brute-force attacks and rainbow table attacks.
  * 
  * Features:
- * - PBKDF2 with HMAC-SHA1
+ * - PBKDF2 with HMAC-SHA1, computed by the KDF engine
  * - Configurable cost factor
  * - Secure random salt generation
  * - Password verification
  * - Base64 encoding for storage
+ * - Asynchronous, bounded-concurrency verification (Verifier)
+ * - Cost calibration to a target latency, with rehash-on-login
+ * - Parallel, ordered, resumable bulk hashing (Bulk)
  * 
  * @author CJ Remillard
  * @version 1.0
@@ -61,10 +68,6 @@ public class PHash
     private static final String       ALGORITHM = "PBKDF2WithHmacSHA1";
     /** Size of the derived key in bits */
     private static final int          SIZE = 128;
-    /** Pattern for validating hash format */
-    private static final Pattern      layout = Pattern.compile("\\$31\\$(\\d\\d?)\\$(.{43})");
-    /** Secure random number generator for salt */
-    private final        SecureRandom random;
     /** Current cost factor */
     private final        int          cost;
 
@@ -86,7 +89,6 @@ public class PHash
     {
         iterations(cost);
         this.cost = cost;
-        this.random = new SecureRandom();
     }
 
     /**
@@ -126,21 +128,40 @@ public class PHash
     public 
     String hash(char[] password) 
     {
-        // Generate random salt
-        byte[] salt = new byte[SIZE / 8];
-        random.nextBytes(salt);
-        
-        // Generate hash using PBKDF2
-        byte[] dk = pbkdf2(password, salt, 1 << cost);
-        
-        // Combine salt and hash
-        byte[] hash = new byte[salt.length + dk.length];
-        System.arraycopy(salt, 0, hash, 0, salt.length);
-        System.arraycopy(dk, 0, hash, salt.length, dk.length);
-        
-        // Encode as Base64
-        Base64.Encoder enc = Base64.getUrlEncoder().withoutPadding();
-        return ID + cost + '$' + enc.encodeToString(hash);
+        Scratch s = SCRATCH.get();
+        int n = utf8(null, password, password.length, s);
+        return token(s, n, cost);
+    }
+
+    /**
+     * Hash the first n bytes of s.pw with a fresh salt from this thread's SRand.
+     * 
+     * @return Hashed password string in format: $31$cost$hash
+     */
+    private static 
+    String token(Scratch s, int n, int cost)
+    {
+        try 
+        {
+            // Generate random salt
+            byte[] salt = new byte[SIZE / 8];
+            SRand.next_bytes(salt);
+
+            // Generate hash using PBKDF2
+            KDF.pbkdf2(ALGORITHM, s.pw, n, salt, 1 << cost, s.dk);
+
+            // Combine salt and hash
+            byte[] hash = new byte[salt.length + s.dk.length];
+            System.arraycopy(salt, 0, hash, 0, salt.length);
+            System.arraycopy(s.dk, 0, hash, salt.length, s.dk.length);
+
+            // Encode as Base64
+            Base64.Encoder enc = Base64.getUrlEncoder().withoutPadding();
+            return ID + cost + '$' + enc.encodeToString(hash);
+        } finally 
+        {
+            Arrays.fill(s.pw, 0, n, (byte) 0);
+        }
     }
 
     /**
@@ -154,24 +175,9 @@ public class PHash
     public 
     boolean auth(char[] password, String token) 
     {
-        // Parse hash format
-        Matcher m = layout.matcher(token);
-        if (!m.matches())
-            throw new IllegalArgumentException("Invalid token format");
-            
-        // Extract cost and hash
-        int iterations = iterations(Integer.parseInt(m.group(1)));
-        byte[] hash = Base64.getUrlDecoder().decode(m.group(2));
-        
-        // Extract salt and verify
-        byte[] salt = Arrays.copyOfRange(hash, 0, SIZE / 8);
-        byte[] check = pbkdf2(password, salt, iterations);
-        
-        // Compare hashes
-        int zero = 0;
-        for (int idx = 0; idx < check.length; ++idx)
-            zero |= hash[salt.length + idx] ^ check[idx];
-        return zero == 0;
+        Scratch s = SCRATCH.get();
+        int n = utf8(null, password, password.length, s);
+        return verify(s, n, token);
     }
 
     /**
@@ -184,32 +190,794 @@ public class PHash
     public 
     boolean auth(String password, String token)
     {
-        return auth(password.toCharArray(), token);
+        return auth((CharSequence) password, token);
+    }
+
+    /**
+     * Verify a password held in any CharSequence (e.g. a StringBuilder that
+     * the caller clears afterwards) without copying it to a char array.
+     * 
+     * @param password Password to verify
+     * @param token Hash to verify against
+     * @return true if password matches, false otherwise
+     * @throws IllegalArgumentException if token format is invalid
+     */
+    public 
+    boolean auth(CharSequence password, CharSequence token)
+    {
+        Scratch s = SCRATCH.get();
+        int n = utf8(password, null, password.length(), s);
+        return verify(s, n, token);
+    }
+
+    /**
+     * Verify a password given as UTF-8 bytes, e.g. straight from a request body.
+     * 
+     * @param password UTF-8 password bytes
+     * @param token Hash to verify against
+     * @return true if password matches, false otherwise
+     * @throws IllegalArgumentException if token format is invalid
+     */
+    public 
+    boolean auth(byte[] password, CharSequence token)
+    {
+        Scratch s = SCRATCH.get();
+        int c = parse(token, s);
+        KDF.pbkdf2(ALGORITHM, password, password.length, s.salt, iterations(c), s.dk);
+        return same(s);
+    }
+
+
+    // TOKEN PARSING //
+    //
+    /**
+     * Per-thread buffers for auth, so a verification allocates nothing
+     * outside the KDF once a thread has warmed up.
+     */
+    private static final class Scratch
+    {
+        byte[] pw   = new byte[64];
+        byte[] raw  = new byte[2 * SIZE / 8];
+        byte[] salt = new byte[SIZE / 8];
+        byte[] dk   = new byte[SIZE / 8];
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+    /** Base64url alphabet value of each ASCII char, -1 if not in it */
+    private static final byte[] B64 = new byte[128];
+    static 
+    {
+        Arrays.fill(B64, (byte) -1);
+        String abc = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < abc.length(); i++)
+            B64[abc.charAt(i)] = (byte) i;
+    }
+
+    /**
+     * Run the KDF on the first n bytes of s.pw against a token.
+     */
+    private static 
+    boolean verify(Scratch s, int n, CharSequence token)
+    {
+        try 
+        {
+            int c = parse(token, s);
+            KDF.pbkdf2(ALGORITHM, s.pw, n, s.salt, iterations(c), s.dk);
+            return same(s);
+        } finally 
+        {
+            Arrays.fill(s.pw, 0, n, (byte) 0);
+        }
+    }
+
+    /**
+     * Constant-time compare of the derived key with the token's hash.
+     */
+    private static 
+    boolean same(Scratch s)
+    {
+        int zero = 0;
+        for (int idx = 0; idx < s.dk.length; ++idx)
+            zero |= s.raw[s.salt.length + idx] ^ s.dk[idx];
+        return zero == 0;
+    }
+
+    /**
+     * Parse $31$cost$base64 into s.raw and s.salt. Accepts exactly what
+     * the old regex and Base64 decoder pair accepted.
+     * 
+     * @return The token's cost
+     * @throws IllegalArgumentException if token format is invalid
+     */
+    private static 
+    int parse(CharSequence token, Scratch s)
+    {
+        int len = token.length();
+        int digits = len - ID.length() - 1 - 43;
+        if (digits < 1 || digits > 2)
+            throw new IllegalArgumentException("Invalid token format");
+        for (int i = 0; i < ID.length(); i++)
+            if (token.charAt(i) != ID.charAt(i))
+                throw new IllegalArgumentException("Invalid token format");
+
+        int at = ID.length();
+        int cost = 0;
+        for (int i = 0; i < digits; i++, at++)
+        {
+            char ch = token.charAt(at);
+            if (ch < '0' || ch > '9')
+                throw new IllegalArgumentException("Invalid token format");
+            cost = cost * 10 + (ch - '0');
+        }
+        if (token.charAt(at++) != '$')
+            throw new IllegalArgumentException("Invalid token format");
+
+        // 43 chars: ten 4-char groups to 3 bytes each, then 3 chars to 2 bytes
+        byte[] raw = s.raw;
+        int o = 0, acc = 0, bits = 0;
+        for (; at < len; at++)
+        {
+            char ch = token.charAt(at);
+            int v = ch < 128 ? B64[ch] : -1;
+            if (v < 0)
+                throw new IllegalArgumentException("Illegal base64 character " + Integer.toString(ch, 16));
+            acc = (acc << 6) | v;
+            bits += 6;
+            if (bits >= 8)
+            {
+                bits -= 8;
+                raw[o++] = (byte) (acc >>> bits);
+            }
+        }
+        System.arraycopy(raw, 0, s.salt, 0, s.salt.length);
+        return cost;
+    }
+
+    /**
+     * UTF-8 encode a password into s.pw, growing it if needed. Unpaired
+     * surrogates become '?', as with the JCE's own encoding of PBEKeySpec.
+     * Exactly one of cs and ca is non-null.
+     * 
+     * @return Number of bytes written
+     */
+    private static 
+    int utf8(CharSequence cs, char[] ca, int len, Scratch s)
+    {
+        if (s.pw.length < 3 * len)
+        {
+            Arrays.fill(s.pw, (byte) 0);
+            s.pw = new byte[3 * len];
+        }
+        byte[] b = s.pw;
+        int n = 0;
+        for (int i = 0; i < len; i++)
+        {
+            char c = ca != null ? ca[i] : cs.charAt(i);
+            if (c < 0x80)
+            {
+                b[n++] = (byte) c;
+            } else if (c < 0x800)
+            {
+                b[n++] = (byte) (0xc0 | (c >> 6));
+                b[n++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c))
+            {
+                char d = i + 1 < len ? (ca != null ? ca[i + 1] : cs.charAt(i + 1)) : 0;
+                if (Character.isHighSurrogate(c) && Character.isLowSurrogate(d))
+                {
+                    int cp = Character.toCodePoint(c, d);
+                    b[n++] = (byte) (0xf0 | (cp >> 18));
+                    b[n++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    b[n++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    b[n++] = (byte) (0x80 | (cp & 0x3f));
+                    i++;
+                } else 
+                {
+                    b[n++] = '?';
+                }
+            } else 
+            {
+                b[n++] = (byte) (0xe0 | (c >> 12));
+                b[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                b[n++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Verify a password and check the token's cost against this instance's.
+     * On success a token hashed below the current cost is re-hashed, so
+     * raising the cost upgrades users as they log in, with no migration.
+     * 
+     * @param password Password to verify
+     * @param token Hash to verify against
+     * @return null if the password does not match; the token itself if it
+     *         matches at the current cost or above; otherwise a new token at
+     *         the current cost, which the caller should store
+     * @throws IllegalArgumentException if token format is invalid
+     */
+    public 
+    String auth_rehash(char[] password, String token)
+    {
+        if (!auth(password, token))
+            return null;
+        return needs_rehash(token) ? hash(password) : token;
+    }
+
+    /**
+     * Verify a password string and re-hash it if its token is below the current cost.
+     * 
+     * @param password Password to verify
+     * @param token Hash to verify against
+     * @return null, the token, or a new token; see auth_rehash(char[], String)
+     */
+    public 
+    String auth_rehash(String password, String token)
+    {
+        return auth_rehash(password.toCharArray(), token);
+    }
+
+    /**
+     * Check whether a token was hashed below this instance's cost.
+     * 
+     * @param token Hash to check
+     * @return true if the token's cost is lower than the current cost
+     * @throws IllegalArgumentException if token format is invalid
+     */
+    public 
+    boolean needs_rehash(String token)
+    {
+        return parse(token, SCRATCH.get()) < cost;
+    }
+
+    /**
+     * @return Cost factor used for new hashes
+     */
+    public 
+    int cost()
+    {
+        return cost;
+    }
+
+
+    // CALIBRATION //
+    //
+    /**
+     * Create a PHash whose cost is calibrated to this machine.
+     * 
+     * @param target_ms Target verification time in milliseconds
+     * @return A new PHash using calibrate(target_ms)
+     */
+    public static 
+    PHash calibrated(long target_ms)
+    {
+        return new PHash(calibrate(target_ms));
+    }
+
+    /**
+     * Benchmark PBKDF2 on this machine and pick the highest cost whose
+     * verification time stays within the target. The pick is timed once
+     * (best of three runs at cost 16 or below, a single run above), so a
+     * call takes one to three times the target, plus a warm-up of a few
+     * hundred milliseconds at a small probe cost. Call it once at startup
+     * and reuse the result.
+     * 
+     * @param target_ms Target verification time in milliseconds
+     * @return Cost factor in [0, 30]
+     * @throws IllegalArgumentException if target_ms is not positive
+     */
+    public static 
+    int calibrate(long target_ms)
+    {
+        if (target_ms <= 0)
+            throw new IllegalArgumentException("target_ms: " + target_ms);
+        final long target = target_ms * 1_000_000L;
+        final int  probe  = 12;
+
+        // Warm up so the timing is of compiled code
+        for (int i = 0; i < 5; i++)
+            time(probe);
+
+        // Time per iteration is flat, so extrapolate from the probe...
+        double per = (double) time(probe) / (1 << probe);
+        int cost = (int) Math.floor(Math.log(target / per) / Math.log(2));
+        cost = Math.max(0, Math.min(30, cost));
+
+        // ...then check the pick once; each step down halves the time,
+        // so an overshoot is corrected without timing again
+        long t = time(cost);
+        if (t > target)
+            cost -= (int) Math.ceil(Math.log((double) t / target) / Math.log(2));
+        return Math.max(0, cost);
+    }
+
+    /**
+     * Best of three PBKDF2 runs at a cost, in nanoseconds.
+     */
+    private static 
+    long time(int cost)
+    {
+        char[] pw = "calibrate".toCharArray();
+        byte[] salt = new byte[SIZE / 8];
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < (cost > 16 ? 1 : 3); i++)
+        {
+            long t0 = System.nanoTime();
+            pbkdf2(pw, salt, 1 << cost);
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best;
+    }
+
+
+    // BULK HASH //
+    //
+    /**
+     * Factory method to create a bulk hasher over a list of passwords.
+     * 
+     * @param passwords Passwords to hash, in output order
+     * @return A new Bulk
+     */
+    public 
+    Bulk Bulk(List<? extends CharSequence> passwords)
+    {
+        return new Bulk(passwords);
+    }
+
+    /**
+     * Factory method to create a bulk hasher over a stream of passwords.
+     * The stream is collected first, since output is indexed.
+     * 
+     * @param passwords Passwords to hash, in output order
+     * @return A new Bulk
+     */
+    public 
+    Bulk Bulk(Stream<? extends CharSequence> passwords)
+    {
+        return new Bulk(passwords.collect(Collectors.toList()));
+    }
+
+    /**
+     * Hashes a list of passwords at this instance's cost on all cores with
+     * fork/join, for bulk credential imports.
+     * 
+     * Features:
+     * - Output array in input order
+     * - Optional ordered sink: tokens are handed over strictly by index, as
+     *   soon as every token before them is done, so a sink that appends to a
+     *   file always holds a complete prefix
+     * - Resumable: next() is the index a rerun should start from()
+     * - Progress via done(), rate() or the sink; cancellation between chunks,
+ *   and a cancelled bulk stays cancelled
+ * - The sink runs outside the bulk's lock, one caller at a time, so a
+ *   slow sink never blocks the workers that are hashing
+     * - Salts from each worker thread's own SRand generator, so workers
+     *   never contend on one lock
+     * 
+     * @author CJ Remillard
+     * @version 1.0
+     */
+    public 
+    class Bulk
+    {
+        // FIELDS //
+        //
+        private static final int            CHUNK = 16;
+        //
+        private final List<? extends CharSequence> PW;
+        private final LongAdder             DONE = new LongAdder();
+        //
+        private int                         threads = Runtime.getRuntime().availableProcessors();
+        private int                         from;
+        private BiConsumer<Integer, String> sink;
+        private volatile boolean            cancelled;
+        private volatile int                next;
+        private volatile long               start;
+        private volatile long               end;        // 0 while a run is in progress
+        // Ordered hand-off state, guarded by this
+        private String[]                    out;
+        private boolean[]                   chunk_done;
+        private int                         ready;      // every token below is done
+        private boolean                     delivering; // a thread is feeding the sink
+
+
+        /**
+         * Constructs a new Bulk.
+         * 
+         * @param passwords Passwords to hash, in output order
+         */
+        public Bulk(List<? extends CharSequence> passwords)
+        {
+            this.PW = passwords;
+        }
+
+
+        /**
+         * @param n Worker threads
+         * @return This bulk
+         */
+        public 
+        Bulk threads(int n)
+        {
+            if (n <= 0)
+                throw new IllegalArgumentException("threads: " + n);
+            this.threads = n;
+            return this;
+        }
+
+        /**
+         * @param index First index to hash; earlier entries are skipped
+         * @return This bulk
+         */
+        public 
+        Bulk from(int index)
+        {
+            if (index < 0 || index > PW.size())
+                throw new IllegalArgumentException("from: " + index);
+            this.from = index;
+            return this;
+        }
+
+        /**
+         * @param sink Receives (index, token) in index order, from worker threads
+         * @return This bulk
+         */
+        public 
+        Bulk on_token(BiConsumer<Integer, String> sink)
+        {
+            this.sink = sink;
+            return this;
+        }
+
+        /**
+         * Hash every password from the start index on.
+         * 
+         * @return Tokens by index; entries before from(), or not reached
+         *         after a cancel, are null
+         */
+        public 
+        String[] run()
+        {
+            int n = PW.size();
+            start = System.nanoTime();
+            end = 0;
+            synchronized (this)
+            {
+                next = ready = from;
+                delivering = false;
+                out = new String[n];
+                chunk_done = new boolean[(n - from + CHUNK - 1) / CHUNK];
+            }
+            if (from == n || cancelled)
+            {
+                end = System.nanoTime();
+                return out;
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try 
+            {
+                pool.invoke(new Part(from, n));
+            } finally 
+            {
+                pool.shutdown();
+                end = System.nanoTime();
+            }
+            return out;
+        }
+
+        /**
+         * Stop after the chunks already in progress. Called before a run
+         * starts, that run returns at once. A cancelled bulk stays
+         * cancelled.
+         */
+        public 
+        void cancel()
+        {
+            cancelled = true;
+        }
+
+        /** @return Passwords hashed so far in this run */
+        public long done() { return DONE.sum(); }
+        /** @return Index below which every token is done and handed to the sink */
+        public int  next() { return next; }
+
+        /**
+         * @return Hashes per second in the current or last run
+         */
+        public 
+        double rate()
+        {
+            long stop = end;
+            double s = ((stop != 0 ? stop : System.nanoTime()) - start) / 1e9;
+            return s > 0 ? DONE.sum() / s : 0;
+        }
+
+        /** Hash one chunk into a local array, then publish it. */
+        private 
+        void chunk(int lo, int hi)
+        {
+            if (cancelled)
+                return;
+            Scratch s = SCRATCH.get();
+            String[] tokens = new String[hi - lo];
+            for (int i = lo; i < hi; i++)
+            {
+                CharSequence pw = PW.get(i);
+                tokens[i - lo] = token(s, utf8(pw, null, pw.length(), s), cost);
+                DONE.increment();
+            }
+            publish(lo, tokens);
+        }
+
+        /**
+         * Store a finished chunk and hand over every chunk now contiguous
+         * with next. The contiguous range is copied under the lock and fed
+         * to the sink outside it; one thread delivers at a time and picks up
+         * whatever other workers make ready meanwhile, so order holds.
+         */
+        private 
+        void publish(int lo, String[] tokens)
+        {
+            synchronized (this)
+            {
+                System.arraycopy(tokens, 0, out, lo, tokens.length);
+                chunk_done[(lo - from) / CHUNK] = true;
+                while (ready < out.length && chunk_done[(ready - from) / CHUNK])
+                    ready = Math.min(ready + CHUNK, out.length);
+                if (sink == null)
+                {
+                    next = ready;
+                    return;
+                }
+                if (delivering)
+                    return;
+                delivering = true;
+            }
+
+            // A throwing sink leaves delivering set, so nothing is handed over out of order
+            while (true)
+            {
+                int at;
+                String[] batch;
+                synchronized (this)
+                {
+                    if (next == ready)
+                    {
+                        delivering = false;
+                        return;
+                    }
+                    at = next;
+                    batch = Arrays.copyOfRange(out, at, ready);
+                }
+                for (int i = 0; i < batch.length; i++)
+                    sink.accept(at + i, batch[i]);
+                next = at + batch.length;
+            }
+        }
+
+        /** Splits an index range down to chunks. */
+        private 
+        class Part extends RecursiveAction
+        {
+            private static final long serialVersionUID = 1L;
+
+            private final int LO, HI;
+
+            Part(int lo, int hi)
+            {
+                this.LO = lo;
+                this.HI = hi;
+            }
+
+            @Override
+            protected 
+            void compute()
+            {
+                if (HI - LO <= CHUNK)
+                {
+                    chunk(LO, HI);
+                    return;
+                }
+                // Split on a chunk boundary so chunks line up with chunk_done
+                int mid = LO + ((HI - LO) / 2 + CHUNK - 1) / CHUNK * CHUNK;
+                invokeAll(new Part(LO, mid), new Part(mid, HI));
+            }
+        }
+    }
+
+
+    // ASYNC VERIFY //
+    //
+    /**
+     * Factory method to create an asynchronous verifier.
+     * 
+     * @param threads Worker threads; PBKDF2 is CPU bound, so the core count is a good start
+     * @param queue Requests allowed to wait for a worker before new ones are shed
+     * @return A new Verifier
+     */
+    public 
+    Verifier Verifier(int threads, int queue)
+    {
+        return new Verifier(threads, queue);
+    }
+
+    /**
+     * Runs auth on a dedicated, fixed-size pool so that a login surge
+     * queues up here instead of taking CPU from every request thread.
+     * Admission is bounded: when the queue is full a request fails at once
+     * with a RejectedExecutionException rather than waiting.
+     * 
+     * Features:
+     * - CompletableFuture results; callers can join, or chain without blocking
+     * - Bounded admission queue with load shedding
+     * - Queue depth, queue wait and verify latency for capacity sizing
+     * 
+     * @author CJ Remillard
+     * @version 1.0
+     */
+    public 
+    class Verifier implements AutoCloseable
+    {
+        // FIELDS //
+        //
+        private final ThreadPoolExecutor POOL;
+        private final LongAdder          DONE      = new LongAdder();
+        private final LongAdder          SHED      = new LongAdder();
+        private final LongAdder          WAIT_NS   = new LongAdder();
+        private final LongAdder          VERIFY_NS = new LongAdder();
+        private final AtomicLong         MAX_WAIT  = new AtomicLong();
+
+
+        /**
+         * Constructs a new Verifier.
+         * 
+         * @param threads Worker threads
+         * @param queue Admission queue capacity
+         */
+        public Verifier(int threads, int queue)
+        {
+            if (threads <= 0)
+                throw new IllegalArgumentException("threads: " + threads);
+            if (queue <= 0)
+                throw new IllegalArgumentException("queue: " + queue);
+            this.POOL = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), r -> {
+                    Thread t = new Thread(r, "PHash-Verifier");
+                    t.setDaemon(true);
+                    return t;
+                });
+        }
+
+
+        /**
+         * Verify a password against a hash on the pool.
+         * The password is copied, so the caller may clear its array at once.
+         * 
+         * @param password Password to verify
+         * @param token Hash to verify against
+         * @return Future of the auth result; fails with RejectedExecutionException
+         *         when shed, or IllegalArgumentException on a malformed token
+         */
+        public 
+        CompletableFuture<Boolean> auth(char[] password, String token)
+        {
+            char[] pw = password.clone();
+            long queued = System.nanoTime();
+            CompletableFuture<Boolean> f = new CompletableFuture<>();
+            try 
+            {
+                POOL.execute(() -> {
+                    long start = System.nanoTime();
+                    long wait = start - queued;
+                    WAIT_NS.add(wait);
+                    MAX_WAIT.accumulateAndGet(wait, Math::max);
+                    boolean ok = false;
+                    RuntimeException err = null;
+                    try 
+                    {
+                        ok = PHash.this.auth(pw, token);
+                    } catch (RuntimeException e) 
+                    {
+                        err = e;
+                    } finally 
+                    {
+                        Arrays.fill(pw, '\0');
+                    }
+
+                    // Count before completing so callers see their own request
+                    VERIFY_NS.add(System.nanoTime() - start);
+                    DONE.increment();
+                    if (err != null)
+                        f.completeExceptionally(err);
+                    else 
+                        f.complete(ok);
+                });
+            } catch (RejectedExecutionException e) 
+            {
+                Arrays.fill(pw, '\0');
+                SHED.increment();
+                f.completeExceptionally(e);
+            }
+            return f;
+        }
+
+        /**
+         * Verify a password string against a hash on the pool.
+         * 
+         * @param password Password to verify
+         * @param token Hash to verify against
+         * @return Future of the auth result
+         */
+        public 
+        CompletableFuture<Boolean> auth(String password, String token)
+        {
+            return auth(password.toCharArray(), token);
+        }
+
+        /** @return Requests waiting for a worker */
+        public int  queued()  { return POOL.getQueue().size(); }
+        /** @return Requests being verified now */
+        public int  active()  { return POOL.getActiveCount(); }
+        /** @return Requests verified (matched or not) */
+        public long done()    { return DONE.sum(); }
+        /** @return Requests rejected because the queue was full */
+        public long shed()    { return SHED.sum(); }
+
+        /**
+         * @return Mean time a verified request spent queued, in milliseconds
+         */
+        public 
+        double mean_wait_ms()
+        {
+            long n = DONE.sum();
+            return n == 0 ? 0 : WAIT_NS.sum() / 1e6 / n;
+        }
+
+        /**
+         * @return Longest time a request spent queued, in milliseconds
+         */
+        public 
+        double max_wait_ms()
+        {
+            return MAX_WAIT.get() / 1e6;
+        }
+
+        /**
+         * @return Mean PBKDF2 verify time per request, in milliseconds
+         */
+        public 
+        double mean_verify_ms()
+        {
+            long n = DONE.sum();
+            return n == 0 ? 0 : VERIFY_NS.sum() / 1e6 / n;
+        }
+
+        /**
+         * Stop accepting requests; queued ones still complete.
+         */
+        @Override
+        public 
+        void close()
+        {
+            POOL.shutdown();
+        }
     }
 
     /**
      * Generate PBKDF2 hash.
+     * Runs on the KDF engine, which produces the same bytes as the JCE
+     * SecretKeyFactory for ALGORITHM, so existing tokens still verify.
      * 
      * @param password Password as character array
      * @param salt Salt bytes
      * @param iterations Number of iterations
      * @return Derived key bytes
-     * @throws IllegalStateException if algorithm is missing or invalid
      */
     private static 
     byte[] pbkdf2(char[] password, byte[] salt, int iterations) 
     {
-        KeySpec spec = new PBEKeySpec(password, salt, iterations, SIZE);
-        try 
-        {
-            SecretKeyFactory f = SecretKeyFactory.getInstance(ALGORITHM);
-            return f.generateSecret(spec).getEncoded();
-        } catch (NoSuchAlgorithmException ex) 
-        {
-            throw new IllegalStateException("Missing algorithm: " + ALGORITHM, ex);
-        } catch (InvalidKeySpecException ex) 
-        {
-            throw new IllegalStateException("Invalid SecretKeyFactory", ex);
-        }
+        return KDF.pbkdf2(ALGORITHM, password, salt, iterations, SIZE);
     }
 }
@@ -22,6 +22,12 @@
 
 package CRJLib.assets;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Parse utility class for converting strings to various numeric types.
  * This class provides safe parsing methods that handle potential errors
@@ -33,6 +39,11 @@ package CRJLib.assets;
  * - String to Float conversion
  * - String to Double conversion
  * - Error handling with default values
+ * - Exception-free parsing of CharSequence, byte[] ranges and Malloc
+ *   memory, with a caller default and a per-thread ok() status
+ * - Correctly rounded Eisel-Lemire float/double conversion
+ * - SWAR integer parsing, 8 digits per step, and bulk parsing of
+ *   delimited buffers into int[], long[] or Malloc memory
  * 
  * @author CJ Remillard
  * @version 1.0
@@ -138,4 +149,840 @@ public class Parse
 
         return 0.0;
     } 
+
+    // EXCEPTION-FREE PARSING //
+    //
+    // These never throw or print: on bad input they return the caller's
+    // default and ok() turns false for the calling thread. Integers accept
+    // what Integer/Long.parseInt accept, limited to ASCII digits. Floating
+    // point accepts decimal notation ([+-]digits[.digits][e[+-]digits]),
+    // NaN and Infinity, with surrounding whitespace trimmed as
+    // Double.parseDouble does; hex floats and f/d suffixes are rejected.
+    //
+    /**
+     * Per-thread status of the last parse and scratch for copied input.
+     */
+    private static final class Status
+    {
+        boolean ok;
+        int     end;
+        byte[]  tmp = new byte[64];
+    }
+
+    private static final ThreadLocal<Status> STATUS = ThreadLocal.withInitial(Status::new);
+
+    /** Exact powers of ten for the fast paths */
+    private static final double[] POW10 = {
+        1e0,  1e1,  1e2,  1e3,  1e4,  1e5,  1e6,  1e7,  1e8,  1e9,  1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] POW10F = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    /**
+     * Tells a real zero (or any value equal to the default) from a failure.
+     * 
+     * @return true if the last exception-free parse on this thread succeeded
+     * 
+     * Example:
+     * str_int("0", -1);  ok() - Returns true
+     * str_int("x", 0);   ok() - Returns false
+     */
+    public 
+    boolean ok()
+    {
+        return STATUS.get().ok;
+    }
+
+    /**
+     * @return Offset just past the last field consumed by a bulk parse on
+     *         this thread, where a follow-up call should continue
+     */
+    public 
+    int end()
+    {
+        return STATUS.get().end;
+    }
+
+    /**
+     * Converts a CharSequence to an integer without throwing.
+     * 
+     * @param s Text to convert
+     * @param def Value returned on failure
+     * @return Integer value, or def if s is not a valid int
+     */
+    public 
+    int str_int(CharSequence s, int def)
+    {
+        Status st = STATUS.get();
+        int n = copy(s, st);
+        return (int) parse_long(st.tmp, 0, n, Integer.MAX_VALUE, def, st);
+    }
+
+    /**
+     * Converts a CharSequence to a long without throwing.
+     * 
+     * @param s Text to convert
+     * @param def Value returned on failure
+     * @return Long value, or def if s is not a valid long
+     */
+    public 
+    long str_long(CharSequence s, long def)
+    {
+        Status st = STATUS.get();
+        int n = copy(s, st);
+        return parse_long(st.tmp, 0, n, Long.MAX_VALUE, def, st);
+    }
+
+    /**
+     * Converts a CharSequence to a float without throwing.
+     * 
+     * @param s Text to convert
+     * @param def Value returned on failure
+     * @return Float value, or def if s is not a valid float
+     */
+    public 
+    float str_float(CharSequence s, float def)
+    {
+        Status st = STATUS.get();
+        int n = copy(s, st);
+        return parse_float(st.tmp, 0, n, def, st);
+    }
+
+    /**
+     * Converts a CharSequence to a double without throwing.
+     * 
+     * @param s Text to convert
+     * @param def Value returned on failure
+     * @return Double value, or def if s is not a valid double
+     */
+    public 
+    double str_double(CharSequence s, double def)
+    {
+        Status st = STATUS.get();
+        int n = copy(s, st);
+        return parse_double(st.tmp, 0, n, def, st);
+    }
+
+    /**
+     * Parses ASCII bytes as an integer without throwing.
+     * 
+     * @param b Source bytes
+     * @param off Start offset
+     * @param len Number of bytes
+     * @param def Value returned on failure
+     * @return Integer value, or def
+     */
+    public 
+    int bytes_int(byte[] b, int off, int len, int def)
+    {
+        return (int) parse_long(b, off, len, Integer.MAX_VALUE, def, STATUS.get());
+    }
+
+    /**
+     * Parses ASCII bytes as a long without throwing.
+     * 
+     * @param b Source bytes
+     * @param off Start offset
+     * @param len Number of bytes
+     * @param def Value returned on failure
+     * @return Long value, or def
+     */
+    public 
+    long bytes_long(byte[] b, int off, int len, long def)
+    {
+        return parse_long(b, off, len, Long.MAX_VALUE, def, STATUS.get());
+    }
+
+    /**
+     * Parses ASCII bytes as a float without throwing.
+     * 
+     * @param b Source bytes
+     * @param off Start offset
+     * @param len Number of bytes
+     * @param def Value returned on failure
+     * @return Float value, or def
+     */
+    public 
+    float bytes_float(byte[] b, int off, int len, float def)
+    {
+        return parse_float(b, off, len, def, STATUS.get());
+    }
+
+    /**
+     * Parses ASCII bytes as a double without throwing.
+     * 
+     * @param b Source bytes
+     * @param off Start offset
+     * @param len Number of bytes
+     * @param def Value returned on failure
+     * @return Double value, or def
+     */
+    public 
+    double bytes_double(byte[] b, int off, int len, double def)
+    {
+        return parse_double(b, off, len, def, STATUS.get());
+    }
+
+    /**
+     * Parses ASCII text in Malloc memory as an integer without throwing.
+     * 
+     * @param m Allocator that owns the memory
+     * @param p Address of the first byte
+     * @param len Number of bytes
+     * @param def Value returned on failure
+     * @return Integer value, or def
+     */
+    public 
+    int mem_int(Malloc m, long p, int len, int def)
+    {
+        Status st = STATUS.get();
+        copy(m, p, len, st);
+        return (int) parse_long(st.tmp, 0, len, Integer.MAX_VALUE, def, st);
+    }
+
+    /**
+     * Parses ASCII text in Malloc memory as a long without throwing.
+     * 
+     * @param m Allocator that owns the memory
+     * @param p Address of the first byte
+     * @param len Number of bytes
+     * @param def Value returned on failure
+     * @return Long value, or def
+     */
+    public 
+    long mem_long(Malloc m, long p, int len, long def)
+    {
+        Status st = STATUS.get();
+        copy(m, p, len, st);
+        return parse_long(st.tmp, 0, len, Long.MAX_VALUE, def, st);
+    }
+
+    /**
+     * Parses ASCII text in Malloc memory as a float without throwing.
+     * 
+     * @param m Allocator that owns the memory
+     * @param p Address of the first byte
+     * @param len Number of bytes
+     * @param def Value returned on failure
+     * @return Float value, or def
+     */
+    public 
+    float mem_float(Malloc m, long p, int len, float def)
+    {
+        Status st = STATUS.get();
+        copy(m, p, len, st);
+        return parse_float(st.tmp, 0, len, def, st);
+    }
+
+    /**
+     * Parses ASCII text in Malloc memory as a double without throwing.
+     * 
+     * @param m Allocator that owns the memory
+     * @param p Address of the first byte
+     * @param len Number of bytes
+     * @param def Value returned on failure
+     * @return Double value, or def
+     */
+    public 
+    double mem_double(Malloc m, long p, int len, double def)
+    {
+        Status st = STATUS.get();
+        copy(m, p, len, st);
+        return parse_double(st.tmp, 0, len, def, st);
+    }
+
+
+    // BULK PARSING //
+    //
+    // Fields are separated by delim or a line break ("\n" or "\r\n"), so
+    // one call takes a delimited row or a whole one-column file. Parsing
+    // stops when the output is full, at the end of the range, or at the
+    // first field that is not a valid number; ok() tells the last case
+    // apart, the return value says how many fields were stored, and end()
+    // is where to continue.
+    //
+    /**
+     * Parse delimited integers into an array.
+     * 
+     * @param b Source bytes
+     * @param off Start offset
+     * @param len Number of bytes
+     * @param delim Field delimiter, e.g. ','
+     * @param out Destination
+     * @return Number of values stored
+     * 
+     * Example:
+     * parse_ints("1,2,3\n4".getBytes(), 0, 7, (byte) ',', out) - Returns 4
+     */
+    public 
+    int parse_ints(byte[] b, int off, int len, byte delim, int[] out)
+    {
+        Status st = STATUS.get();
+        int p = off, e = off + len, k = 0;
+        while (p < e && k < out.length)
+        {
+            int v = (int) parse_run(b, p, e, Integer.MAX_VALUE, 0, st);
+            if (!st.ok || !field_done(b, e, delim, st))
+            {
+                st.ok = false;
+                break;
+            }
+            out[k++] = v;
+            p = st.end;
+        }
+        st.end = p;
+        if (k == out.length || p == e)
+            st.ok = true;
+        return k;
+    }
+
+    /**
+     * Parse delimited longs into an array.
+     * 
+     * @param b Source bytes
+     * @param off Start offset
+     * @param len Number of bytes
+     * @param delim Field delimiter, e.g. ','
+     * @param out Destination
+     * @return Number of values stored
+     */
+    public 
+    int parse_longs(byte[] b, int off, int len, byte delim, long[] out)
+    {
+        Status st = STATUS.get();
+        int p = off, e = off + len, k = 0;
+        while (p < e && k < out.length)
+        {
+            long v = parse_run(b, p, e, Long.MAX_VALUE, 0, st);
+            if (!st.ok || !field_done(b, e, delim, st))
+            {
+                st.ok = false;
+                break;
+            }
+            out[k++] = v;
+            p = st.end;
+        }
+        st.end = p;
+        if (k == out.length || p == e)
+            st.ok = true;
+        return k;
+    }
+
+    /**
+     * Parse delimited longs into Malloc memory, 8 bytes per value.
+     * 
+     * @param b Source bytes
+     * @param off Start offset
+     * @param len Number of bytes
+     * @param delim Field delimiter, e.g. ','
+     * @param m Allocator that owns the destination
+     * @param dst Address of the first long
+     * @param max Capacity of the destination in longs
+     * @return Number of values stored
+     */
+    public 
+    int parse_longs(byte[] b, int off, int len, byte delim, Malloc m, long dst, int max)
+    {
+        Status st = STATUS.get();
+        int p = off, e = off + len, k = 0;
+        while (p < e && k < max)
+        {
+            long v = parse_run(b, p, e, Long.MAX_VALUE, 0, st);
+            if (!st.ok || !field_done(b, e, delim, st))
+            {
+                st.ok = false;
+                break;
+            }
+            m.wlong(dst + 8L * k++, v);
+            p = st.end;
+        }
+        st.end = p;
+        if (k == max || p == e)
+            st.ok = true;
+        return k;
+    }
+
+
+    // PARSING CORE //
+    //
+    /**
+     * Signed decimal integer in [-max-1, max] filling the whole range.
+     */
+    private static 
+    long parse_long(byte[] b, int off, int len, long max, long def, Status st)
+    {
+        long v = parse_run(b, off, off + len, max, def, st);
+        if (st.end != off + len)
+            st.ok = false;
+        return st.ok ? v : def;
+    }
+
+    /**
+     * Signed decimal integer in [-max-1, max] starting at p and running up
+     * to the first non-digit (or e), which is left in st.end. Accumulated
+     * negatively so the minimum value fits. Fails on no digits or overflow.
+     */
+    private static 
+    long parse_run(byte[] b, int p, int e, long max, long def, Status st)
+    {
+        st.ok = false;
+        st.end = p;
+        if (p == e)
+            return def;
+        boolean neg = false;
+        if (b[p] == '-' || b[p] == '+')
+        {
+            neg = b[p++] == '-';
+            if (p == e)
+                return def;
+        }
+        int first = p;
+
+        long limit = neg ? -max - 1 : -max;
+        long mulmin = limit / 10;
+
+        // Up to 16 leading digits eight at a time; 10^16 cannot overflow,
+        // so only the range check for int is needed before going scalar
+        long v = 0;
+        int  swar = 0;
+        while (e - p >= 8 && swar < 16)
+        {
+            long w = (long) LE_LONG.get(b, p);
+            if (!eight_digits(w))
+                break;
+            v = v * 100_000_000 + eight(w);
+            p += 8;
+            swar += 8;
+        }
+        v = -v;
+        if (v < limit)
+            return def;
+
+        for (; p < e; p++)
+        {
+            int d = b[p] - '0';
+            if (d < 0 || d > 9)
+                break;
+            if (v < mulmin)
+                return def;
+            v *= 10;
+            if (v < limit + d)
+                return def;
+            v -= d;
+        }
+        st.end = p;
+        if (p == first)
+            return def;
+        st.ok = true;
+        return neg ? v : -v;
+    }
+
+    /**
+     * After a bulk field parsed up to st.end: true if the field ends there,
+     * at a delimiter, a line break or the end of the range. Moves st.end
+     * past the separator.
+     */
+    private static 
+    boolean field_done(byte[] b, int e, byte delim, Status st)
+    {
+        int p = st.end;
+        if (p == e)
+            return true;
+        if (b[p] == '\r')
+        {
+            if (p + 1 == e)
+            {
+                st.end = e;
+                return true;
+            }
+            if (b[p + 1] == '\n')
+                p++;
+        }
+        if (b[p] != delim && b[p] != '\n')
+            return false;
+        st.end = p + 1;
+        return true;
+    }
+
+    /** Little-endian long view of byte arrays, for reading 8 digits at once */
+    private static final VarHandle LE_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * True if all eight bytes of w are ASCII digits.
+     */
+    private static 
+    boolean eight_digits(long w)
+    {
+        return ((w & 0xF0F0F0F0F0F0F0F0L) | (((w + 0x0606060606060606L) & 0xF0F0F0F0F0F0F0F0L) >>> 4)) == 0x3333333333333333L;
+    }
+
+    /**
+     * Value of eight ASCII digits read little-endian (first digit in the
+     * low byte): pairs, then quads, then the whole word, by multiply-shift.
+     */
+    private static 
+    long eight(long w)
+    {
+        w = ((w & 0x0F0F0F0F0F0F0F0FL) * 2561) >>> 8;
+        w = ((w & 0x00FF00FF00FF00FFL) * 6553601) >>> 16;
+        return ((w & 0x0000FFFF0000FFFFL) * 42949672960001L) >>> 32;
+    }
+
+    /**
+     * Result of scanning a decimal number: value = m * 10^exp, where m (unsigned) holds
+     * the first 19 significant digits and trunc tells whether any nonzero
+     * digit was dropped after them.
+     */
+    private static final class Dec
+    {
+        boolean neg, trunc;
+        long    m;
+        int     exp;
+        int     start, end;     // trimmed range, for the fallback
+        int     special;        // 0 number, 1 NaN, 2 Infinity
+    }
+
+    private static final ThreadLocal<Dec> DEC = ThreadLocal.withInitial(Dec::new);
+
+    /**
+     * Scan [+-]digits[.digits][(e|E)[+-]digits], NaN or Infinity.
+     * 
+     * @return false if the text is not in that grammar
+     */
+    private static 
+    boolean scan(byte[] b, int off, int len, Dec d)
+    {
+        int p = off, e = off + len;
+        while (p < e && (b[p] & 0xff) <= ' ')
+            p++;
+        while (e > p && (b[e - 1] & 0xff) <= ' ')
+            e--;
+        d.start = p;
+        d.end = e;
+        if (p == e)
+            return false;
+
+        d.neg = false;
+        if (b[p] == '-' || b[p] == '+')
+        {
+            d.neg = b[p++] == '-';
+            if (p == e)
+                return false;
+        }
+        d.special = 0;
+        if (b[p] == 'N')
+        {
+            d.special = 1;
+            return match(b, p, e, "NaN");
+        }
+        if (b[p] == 'I')
+        {
+            d.special = 2;
+            return match(b, p, e, "Infinity");
+        }
+
+        long m = 0;
+        int  sig = 0, exp = 0, digits = 0;
+        boolean trunc = false;
+
+        // Integer part; leading zeros are not significant
+        for (; p < e; p++)
+        {
+            int c = b[p] - '0';
+            if (c < 0 || c > 9)
+                break;
+            digits++;
+            if (sig < 19)
+            {
+                if (m != 0 || c != 0)
+                {
+                    m = m * 10 + c;
+                    sig++;
+                }
+            } else 
+            {
+                exp++;
+                trunc |= c != 0;
+            }
+        }
+        // Fraction
+        if (p < e && b[p] == '.')
+        {
+            for (p++; p < e; p++)
+            {
+                int c = b[p] - '0';
+                if (c < 0 || c > 9)
+                    break;
+                digits++;
+                if (sig < 19)
+                {
+                    if (m != 0 || c != 0)
+                    {
+                        m = m * 10 + c;
+                        sig++;
+                    }
+                    exp--;
+                } else 
+                {
+                    trunc |= c != 0;
+                }
+            }
+        }
+        if (digits == 0)
+            return false;
+
+        // Exponent, saturated well beyond any double's range
+        if (p < e && (b[p] == 'e' || b[p] == 'E'))
+        {
+            p++;
+            boolean eneg = false;
+            if (p < e && (b[p] == '-' || b[p] == '+'))
+                eneg = b[p++] == '-';
+            if (p == e)
+                return false;
+            int x = 0;
+            for (; p < e; p++)
+            {
+                int c = b[p] - '0';
+                if (c < 0 || c > 9)
+                    return false;
+                if (x < 100_000)
+                    x = x * 10 + c;
+            }
+            exp += eneg ? -x : x;
+        }
+        if (p != e)
+            return false;
+
+        d.m = m;
+        d.exp = exp;
+        d.trunc = trunc;
+        return true;
+    }
+
+    private static 
+    boolean match(byte[] b, int p, int e, String word)
+    {
+        if (e - p != word.length())
+            return false;
+        for (int i = 0; i < word.length(); i++)
+            if (b[p + i] != word.charAt(i))
+                return false;
+        return true;
+    }
+
+    private static 
+    double parse_double(byte[] b, int off, int len, double def, Status st)
+    {
+        Dec d = DEC.get();
+        st.ok = false;
+        if (!scan(b, off, len, d))
+            return def;
+        st.ok = true;
+
+        double v;
+        if (d.special != 0)
+            v = d.special == 1 ? Double.NaN : Double.POSITIVE_INFINITY;
+        else if (d.m == 0)
+            v = 0.0;
+        else if (!d.trunc && (d.m >>> 53) == 0 && d.exp >= -22 && d.exp <= 22)
+            // Clinger: both operands exact, so one rounding
+            v = d.exp < 0 ? d.m / POW10[-d.exp] : d.m * POW10[d.exp];
+        else 
+        {
+            long bits = lemire(d.m, d.exp, 52, -1023, 0x7ff, -342, 308, -4, 23);
+            // Digits were dropped after the 19th: the true value lies
+            // between m and m+1, and both must round the same way
+            if (d.trunc && bits != lemire(d.m + 1, d.exp, 52, -1023, 0x7ff, -342, 308, -4, 23))
+                // The text is valid for the JDK parser too, so this cannot throw
+                return Double.parseDouble(new String(b, d.start, d.end - d.start, StandardCharsets.ISO_8859_1));
+            v = Double.longBitsToDouble(bits);
+        }
+        return d.neg ? -v : v;
+    }
+
+    private static 
+    float parse_float(byte[] b, int off, int len, float def, Status st)
+    {
+        Dec d = DEC.get();
+        st.ok = false;
+        if (!scan(b, off, len, d))
+            return def;
+        st.ok = true;
+
+        float v;
+        if (d.special != 0)
+            v = d.special == 1 ? Float.NaN : Float.POSITIVE_INFINITY;
+        else if (d.m == 0)
+            v = 0.0f;
+        else if (!d.trunc && (d.m >>> 24) == 0 && d.exp >= -10 && d.exp <= 10)
+            v = d.exp < 0 ? d.m / POW10F[-d.exp] : d.m * POW10F[d.exp];
+        else 
+        {
+            long bits = lemire(d.m, d.exp, 23, -127, 0xff, -65, 38, -17, 10);
+            if (d.trunc && bits != lemire(d.m + 1, d.exp, 23, -127, 0xff, -65, 38, -17, 10))
+                return Float.parseFloat(new String(b, d.start, d.end - d.start, StandardCharsets.ISO_8859_1));
+            v = Float.intBitsToFloat((int) bits);
+        }
+        return d.neg ? -v : v;
+    }
+
+    // EISEL-LEMIRE //
+    //
+    // Daniel Lemire, "Number Parsing at a Gigabyte per Second" (2021), as
+    // in the fast_float library: w * 10^q is computed from a 128-bit
+    // truncated power of five, which is always enough to round correctly
+    // (Mushtak and Lemire, "Fast Number Parsing Without Fallback", 2023).
+    //
+    /** Smallest power of ten in the table */
+    private static final int    P5_MIN = -342;
+    /** 128-bit powers of five for q in [-342, 308], as (high, low) pairs */
+    private static final long[] P5 = powers_of_five(P5_MIN, 308);
+
+    /**
+     * Build the table exactly as fast_float's generator script does: for
+     * q >= 0, 5^q normalised and truncated to 128 bits; for q < 0, a
+     * reciprocal 2^b / 5^-q plus one, truncated to 128 bits.
+     */
+    private static 
+    long[] powers_of_five(int min, int max)
+    {
+        long[] t = new long[2 * (max - min + 1)];
+        BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+        for (int q = min; q <= max; q++)
+        {
+            BigInteger c;
+            if (q >= 0)
+            {
+                c = BigInteger.valueOf(5).pow(q);
+                int bl = c.bitLength();
+                c = bl < 128 ? c.shiftLeft(128 - bl) : c.shiftRight(bl - 128);
+            } else 
+            {
+                BigInteger p5 = BigInteger.valueOf(5).pow(-q);
+                int z = p5.subtract(BigInteger.ONE).bitLength();   // smallest z with 2^z >= 5^-q
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                c = BigInteger.ONE.shiftLeft(b).divide(p5).add(BigInteger.ONE);
+                while (c.compareTo(two128) >= 0)
+                    c = c.shiftRight(1);
+            }
+            int i = 2 * (q - min);
+            t[i]     = c.shiftRight(64).longValue();
+            t[i + 1] = c.longValue();
+        }
+        return t;
+    }
+
+    /**
+     * Correctly rounded w * 10^q as IEEE bits without the sign.
+     * 
+     * @param w Decimal significand, nonzero, read as unsigned
+     * @param q Decimal exponent
+     * @param mbits Explicit mantissa bits (52 or 23)
+     * @param minexp Minimum binary exponent (-1023 or -127)
+     * @param inf Biased exponent of infinity
+     * @param qmin Below this q the value rounds to zero
+     * @param qmax Above this q the value is infinite
+     * @param rmin Range of q where an exact halfway tie is possible
+     * @param rmax
+     * @return Bits of the magnitude
+     */
+    private static 
+    long lemire(long w, int q, int mbits, int minexp, int inf, int qmin, int qmax, int rmin, int rmax)
+    {
+        if (w == 0 || q < qmin)
+            return 0;
+        if (q > qmax)
+            return (long) inf << mbits;
+
+        int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+
+        // Upper 128 bits of w * 5^q; the second word is only needed when the
+        // bits below the mantissa are all ones and a carry could reach them
+        int  i    = 2 * (q - P5_MIN);
+        long hi   = umul_hi(w, P5[i]);
+        long lo   = w * P5[i];
+        long mask = -1L >>> (mbits + 3);
+        if ((hi & mask) == mask)
+        {
+            long hi2 = umul_hi(w, P5[i + 1]);
+            long sum = lo + hi2;
+            if (Long.compareUnsigned(sum, lo) < 0)
+                hi++;
+            lo = sum;
+        }
+
+        int upper = (int) (hi >>> 63);
+        int shift = upper + 64 - mbits - 3;
+        long m = hi >>> shift;
+        int p2 = ((((152170 + 65536) * q) >> 16) + 63) + upper - lz - minexp;
+
+        if (p2 <= 0)
+        {
+            // Subnormal (or zero)
+            if (-p2 + 1 >= 64)
+                return 0;
+            m >>>= -p2 + 1;
+            m += m & 1;
+            m >>>= 1;
+            p2 = m < (1L << mbits) ? 0 : 1;
+            return m | ((long) p2 << mbits);
+        }
+
+        // Exactly halfway between two floats: round to even, not up
+        if (Long.compareUnsigned(lo, 1) <= 0 && q >= rmin && q <= rmax
+            && (m & 3) == 1 && (m << shift) == hi)
+            m &= ~1L;
+
+        m += m & 1;
+        m >>>= 1;
+        if (m >= (2L << mbits))
+        {
+            m = 1L << mbits;
+            p2++;
+        }
+        m &= ~(1L << mbits);
+        if (p2 >= inf)
+            return (long) inf << mbits;
+        return m | ((long) p2 << mbits);
+    }
+
+    /** High 64 bits of the unsigned 128-bit product a * b. */
+    private static 
+    long umul_hi(long a, long b)
+    {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    /**
+     * Copy chars into the scratch buffer as bytes; chars outside ASCII
+     * become DEL, which no grammar accepts and trimming leaves alone.
+     */
+    private static 
+    int copy(CharSequence s, Status st)
+    {
+        int n = s.length();
+        if (st.tmp.length < n)
+            st.tmp = new byte[Math.max(n, st.tmp.length * 2)];
+        byte[] t = st.tmp;
+        for (int i = 0; i < n; i++)
+        {
+            char c = s.charAt(i);
+            t[i] = c < 0x80 ? (byte) c : 0x7f;
+        }
+        return n;
+    }
+
+    private static 
+    void copy(Malloc m, long p, int len, Status st)
+    {
+        if (st.tmp.length < len)
+            st.tmp = new byte[Math.max(len, st.tmp.length * 2)];
+        byte[] t = st.tmp;
+        for (int i = 0; i < len; i++)
+            t[i] = m.rbyte(p + i);
+    }
 }
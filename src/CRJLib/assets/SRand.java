@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2025 CJ Remillard
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package CRJLib.assets;
+
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SRand class is a per-thread secure random service. Every thread gets
+ * its own DRBG, so callers never serialize on one provider lock, and
+ * small requests (salts, nonces, bounded ints) are served from a per-thread
+ * buffer that is refilled in bulk. PHash and Std.srand draw from it.
+ * 
+ * Features:
+ * - One Hash_DRBG (SHA-256, 256-bit strength) per thread
+ * - Buffered bulk output; served bytes are wiped from the buffer
+ * - Reseeding after RESEED_BYTES of output or RESEED_NS of age
+ * - Non-blocking mode that seeds from the OS non-blocking source
+ *   (/dev/urandom) instead of the JDK seed generator
+ * - Unbiased bounded ints
+ * 
+ * @author CJ Remillard
+ * @version 1.0
+ */
+public class SRand 
+{
+    // FIELDS //
+    //
+    /** Per-thread buffer size */
+    public static final  int  BUF          = 4096;
+    /** Output after which a thread's DRBG is reseeded */
+    public static final  long RESEED_BYTES = 64L << 20;
+    /** Age after which a thread's DRBG is reseeded (10 minutes) */
+    public static final  long RESEED_NS    = 600_000_000_000L;
+    //
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+    private static final LongAdder REFILLS = new LongAdder();
+    private static final LongAdder RESEEDS = new LongAdder();
+    private static volatile boolean non_blocking;
+
+
+    /**
+     * Per-thread generator and buffer.
+     */
+    private static final class State
+    {
+        final SecureRandom DRBG;
+        final byte[]       BYTES = new byte[BUF];
+        int                pos   = BUF;
+        long               out;
+        long               seeded;
+
+        State()
+        {
+            DRBG = drbg();
+            if (non_blocking)
+                DRBG.setSeed(seed());
+            seeded = System.nanoTime();
+        }
+
+        void refill()
+        {
+            check();
+            DRBG.nextBytes(BYTES);
+            pos = 0;
+            out += BYTES.length;
+            REFILLS.increment();
+        }
+
+        void check()
+        {
+            if (out >= RESEED_BYTES || System.nanoTime() - seeded >= RESEED_NS)
+                reseed();
+        }
+
+        void reseed()
+        {
+            if (non_blocking)
+                DRBG.setSeed(seed());
+            else 
+                DRBG.reseed();
+            out = 0;
+            seeded = System.nanoTime();
+            RESEEDS.increment();
+        }
+    }
+
+
+    // MODE //
+    //
+    /**
+     * Choose where thread generators get entropy. Blocking mode (the
+     * default) uses the JDK seed generator, which may wait for the OS pool
+     * at boot on some systems; non-blocking mode reads the OS non-blocking
+     * source. Applies to generators created or reseeded afterwards.
+     * 
+     * @param on true for non-blocking seeding
+     */
+    public static 
+    void non_blocking(boolean on)
+    {
+        non_blocking = on;
+    }
+
+    /**
+     * @return true if new seeds come from the non-blocking source
+     */
+    public static 
+    boolean non_blocking()
+    {
+        return non_blocking;
+    }
+
+
+    // OUTPUT //
+    //
+    /**
+     * Fill an array with secure random bytes.
+     * 
+     * @param b Array to fill
+     */
+    public static 
+    void next_bytes(byte[] b)
+    {
+        next_bytes(b, 0, b.length);
+    }
+
+    /**
+     * Fill a range with secure random bytes. Requests of half a buffer or
+     * more go straight to the thread's DRBG; smaller ones come from the buffer.
+     * 
+     * @param b Array to fill
+     * @param off Start offset
+     * @param len Number of bytes
+     */
+    public static 
+    void next_bytes(byte[] b, int off, int len)
+    {
+        State s = STATE.get();
+        if (len >= BUF / 2)
+        {
+            s.check();
+            byte[] tmp = off == 0 && len == b.length ? b : new byte[len];
+            s.DRBG.nextBytes(tmp);
+            if (tmp != b)
+            {
+                System.arraycopy(tmp, 0, b, off, len);
+                Arrays.fill(tmp, (byte) 0);
+            }
+            s.out += len;
+            return;
+        }
+
+        while (len > 0)
+        {
+            if (s.pos == s.BYTES.length)
+                s.refill();
+            int n = Math.min(len, s.BYTES.length - s.pos);
+            System.arraycopy(s.BYTES, s.pos, b, off, n);
+            Arrays.fill(s.BYTES, s.pos, s.pos + n, (byte) 0);
+            s.pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * @return A secure random int
+     */
+    public static 
+    int next_int()
+    {
+        State s = STATE.get();
+        if (s.BYTES.length - s.pos < 4)
+            s.refill();
+        byte[] b = s.BYTES;
+        int p = s.pos;
+        int r = (b[p] << 24) | ((b[p + 1] & 0xff) << 16) | ((b[p + 2] & 0xff) << 8) | (b[p + 3] & 0xff);
+        Arrays.fill(b, p, p + 4, (byte) 0);
+        s.pos = p + 4;
+        return r;
+    }
+
+    /**
+     * Secure random int in [0, bound), without modulo bias.
+     * 
+     * @param bound Upper bound (exclusive), positive
+     * @return A secure random int
+     * @throws IllegalArgumentException if bound is not positive
+     */
+    public static 
+    int next_int(int bound)
+    {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound: " + bound);
+        int r = next_int() >>> 1;
+        int m = bound - 1;
+        if ((bound & m) == 0)
+            return (int) ((bound * (long) r) >> 31);
+        for (int u = r; u - (r = u % bound) + m < 0; u = next_int() >>> 1)
+            ;
+        return r;
+    }
+
+    /**
+     * @return A secure random long
+     */
+    public static 
+    long next_long()
+    {
+        return ((long) next_int() << 32) | (next_int() & 0xffffffffL);
+    }
+
+    /**
+     * Get this thread's DRBG, e.g. for an API that takes a SecureRandom.
+     * It is thread-safe, but sharing it across threads brings back the
+     * contention this class avoids.
+     * 
+     * @return This thread's SecureRandom
+     */
+    public static 
+    SecureRandom get()
+    {
+        return STATE.get().DRBG;
+    }
+
+    /**
+     * Reseed this thread's generator now, e.g. after restoring a VM snapshot.
+     */
+    public static 
+    void reseed()
+    {
+        State s = STATE.get();
+        s.reseed();
+        Arrays.fill(s.BYTES, (byte) 0);
+        s.pos = s.BYTES.length;
+    }
+
+    /** @return Buffer refills across all threads */
+    public static long refills() { return REFILLS.sum(); }
+    /** @return Reseeds across all threads */
+    public static long reseeds() { return RESEEDS.sum(); }
+
+
+    // HELPERS //
+    //
+    /**
+     * New Hash_DRBG instance; personalised with the thread so no two
+     * instances share an instantiation string.
+     */
+    private static 
+    SecureRandom drbg()
+    {
+        Thread t = Thread.currentThread();
+        byte[] ps = (t.getId() + ":" + System.nanoTime() + ":" + t.getName()).getBytes();
+        try 
+        {
+            return SecureRandom.getInstance("DRBG",
+                DrbgParameters.instantiation(256, DrbgParameters.Capability.RESEED_ONLY, ps));
+        } catch (NoSuchAlgorithmException ex) 
+        {
+            return new SecureRandom();
+        }
+    }
+
+    /**
+     * Seed material from the OS non-blocking source. setSeed on a DRBG
+     * that has not produced output yet instantiates it from this input
+     * alone, so the JDK seed generator is never consulted.
+     */
+    private static 
+    byte[] seed()
+    {
+        SecureRandom os;
+        try 
+        {
+            os = SecureRandom.getInstance("NativePRNGNonBlocking");
+        } catch (NoSuchAlgorithmException ex) 
+        {
+            // Not on Unix; the default source there does not block
+            os = new SecureRandom();
+        }
+        byte[] b = new byte[48];
+        os.nextBytes(b);
+        return b;
+    }
+}
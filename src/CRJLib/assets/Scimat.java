@@ -19,17 +19,31 @@ package CRJLib.assets;
  * Scimat - Scientific Mathematics Utility Class
  * Provides mathematical operations with improved accuracy and safety checks.
  * 
+ * Features:
+ * - Checked scalar sqrt and abs
+ * - Element-wise sqrt, abs, add, mul and fma over double[], float[] and
+ *   Malloc memory
+ * - Reductions: sum, dot, min, max and the 1, 2 and infinity norms
+ * 
+ * The array kernels are plain counted loops that C2 compiles to SIMD
+ * (SuperWord): element-wise loops are left as one statement per index so
+ * they vectorize as written, and reductions keep four independent
+ * accumulators so the adds overlap instead of waiting on each other.
+ * Sums therefore associate differently from a left-to-right loop and can
+ * differ from it in the last bits. Float reductions accumulate in double.
+ * Destination arrays may be the same as a source.
+ * 
  * @author CJ Remillard
  * @version 1.0
  * @since 2025-04-02
  */
 public class Scimat 
 {
-    private static final double EPSILON        = 1e-15;  // Machine epsilon for double precision
-    private static final int    MAX_ITERATIONS = 100;  // Prevent infinite loops
+    /** Below this a sum of squares may have lost bits to underflow */
+    private static final double TINY = 0x1p-969;
 
     /**
-     * Calculates the square root of a number using Newton's method with improved accuracy.
+     * Calculates the square root of a number.
      * 
      * @param n The number to calculate the square root of
      * @return The square root of n, or 0.0 for negative numbers
@@ -44,28 +58,8 @@ public class Scimat
 
         if (n < 0.0) 
             return 0.0;           // Return 0 for negative numbers
-        if (n == 0.0 || n == 1.0)
-            return n;             // Special cases
 
-        // Initial guess using bit manipulation for better convergence
-        double guess = Double.longBitsToDouble((Double.doubleToLongBits(n) >> 1) + 0x1ff0000000000000L);
-        double prevGuess;
-        int iterations = 0;
-
-        do 
-        {
-            prevGuess = guess;
-            guess = (guess + n / guess) / 2.0;
-            iterations++;
-
-            // Check for convergence or maximum iterations
-            if (iterations >= MAX_ITERATIONS || Math.abs(guess - prevGuess) <= EPSILON * Math.abs(guess)) 
-            {
-                break;
-            }
-        } while (true);
-
-        return guess;
+        return Math.sqrt(n);      // Correctly rounded, a single instruction
     }
 
     /**
@@ -81,4 +75,624 @@ public class Scimat
     }
 
 
+    // ELEMENT-WISE, double[] //
+    //
+    // dst[i] = op(a[i], ...) for every index of dst; sources must be at
+    // least as long. sqrt follows Math.sqrt: NaN for negative elements.
+    //
+    /**
+     * @param a Source
+     * @param dst Destination, may be a
+     */
+    public 
+    void sqrt(double[] a, double[] dst)
+    {
+        int n = len(dst.length, a.length);
+        for (int i = 0; i < n; i++)
+            dst[i] = Math.sqrt(a[i]);
+    }
+
+    /**
+     * @param a Source
+     * @param dst Destination, may be a
+     */
+    public 
+    void abs(double[] a, double[] dst)
+    {
+        int n = len(dst.length, a.length);
+        for (int i = 0; i < n; i++)
+            dst[i] = Math.abs(a[i]);
+    }
+
+    /**
+     * dst = a + b
+     * 
+     * @param a First source
+     * @param b Second source
+     * @param dst Destination, may be a or b
+     */
+    public 
+    void add(double[] a, double[] b, double[] dst)
+    {
+        int n = len(dst.length, a.length, b.length);
+        for (int i = 0; i < n; i++)
+            dst[i] = a[i] + b[i];
+    }
+
+    /**
+     * dst = a * b
+     * 
+     * @param a First source
+     * @param b Second source
+     * @param dst Destination, may be a or b
+     */
+    public 
+    void mul(double[] a, double[] b, double[] dst)
+    {
+        int n = len(dst.length, a.length, b.length);
+        for (int i = 0; i < n; i++)
+            dst[i] = a[i] * b[i];
+    }
+
+    /**
+     * dst = a * b + c with a single rounding (Math.fma).
+     * 
+     * @param a First factor
+     * @param b Second factor
+     * @param c Addend
+     * @param dst Destination, may be any source
+     */
+    public 
+    void fma(double[] a, double[] b, double[] c, double[] dst)
+    {
+        int n = len(dst.length, a.length, b.length, c.length);
+        for (int i = 0; i < n; i++)
+            dst[i] = Math.fma(a[i], b[i], c[i]);
+    }
+
+
+    // ELEMENT-WISE, float[] //
+    //
+    /** Float version of sqrt(double[], double[]) */
+    public 
+    void sqrt(float[] a, float[] dst)
+    {
+        int n = len(dst.length, a.length);
+        for (int i = 0; i < n; i++)
+            dst[i] = (float) Math.sqrt(a[i]);
+    }
+
+    /** Float version of abs(double[], double[]) */
+    public 
+    void abs(float[] a, float[] dst)
+    {
+        int n = len(dst.length, a.length);
+        for (int i = 0; i < n; i++)
+            dst[i] = Math.abs(a[i]);
+    }
+
+    /** Float version of add(double[], double[], double[]) */
+    public 
+    void add(float[] a, float[] b, float[] dst)
+    {
+        int n = len(dst.length, a.length, b.length);
+        for (int i = 0; i < n; i++)
+            dst[i] = a[i] + b[i];
+    }
+
+    /** Float version of mul(double[], double[], double[]) */
+    public 
+    void mul(float[] a, float[] b, float[] dst)
+    {
+        int n = len(dst.length, a.length, b.length);
+        for (int i = 0; i < n; i++)
+            dst[i] = a[i] * b[i];
+    }
+
+    /** Float version of fma(double[], double[], double[], double[]) */
+    public 
+    void fma(float[] a, float[] b, float[] c, float[] dst)
+    {
+        int n = len(dst.length, a.length, b.length, c.length);
+        for (int i = 0; i < n; i++)
+            dst[i] = Math.fma(a[i], b[i], c[i]);
+    }
+
+
+    // ELEMENT-WISE, Malloc //
+    //
+    // Arrays of n doubles at the given addresses; dst may equal a source.
+    //
+    /** Off-heap version of sqrt on double arrays */
+    public 
+    void sqrt(Malloc m, long a, long dst, int n)
+    {
+        for (long i = 0, e = 8L * n; i < e; i += 8)
+            m.wdouble(dst + i, Math.sqrt(m.rdouble(a + i)));
+    }
+
+    /** Off-heap version of abs on double arrays */
+    public 
+    void abs(Malloc m, long a, long dst, int n)
+    {
+        for (long i = 0, e = 8L * n; i < e; i += 8)
+            m.wdouble(dst + i, Math.abs(m.rdouble(a + i)));
+    }
+
+    /** Off-heap version of add on double arrays */
+    public 
+    void add(Malloc m, long a, long b, long dst, int n)
+    {
+        for (long i = 0, e = 8L * n; i < e; i += 8)
+            m.wdouble(dst + i, m.rdouble(a + i) + m.rdouble(b + i));
+    }
+
+    /** Off-heap version of mul on double arrays */
+    public 
+    void mul(Malloc m, long a, long b, long dst, int n)
+    {
+        for (long i = 0, e = 8L * n; i < e; i += 8)
+            m.wdouble(dst + i, m.rdouble(a + i) * m.rdouble(b + i));
+    }
+
+    /** Off-heap version of fma on double arrays */
+    public 
+    void fma(Malloc m, long a, long b, long c, long dst, int n)
+    {
+        for (long i = 0, e = 8L * n; i < e; i += 8)
+            m.wdouble(dst + i, Math.fma(m.rdouble(a + i), m.rdouble(b + i), m.rdouble(c + i)));
+    }
+
+
+    // REDUCTIONS, double[] //
+    //
+    // min and max follow Math.min/max (NaN wins, -0.0 < 0.0) and return
+    // NaN for an empty array; sum, dot and the norms return 0.
+    //
+    /**
+     * @param a Values
+     * @return Sum of a
+     */
+    public 
+    double sum(double[] a)
+    {
+        int n = a.length, i = 0;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (; i + 3 < n; i += 4)
+        {
+            s0 += a[i];
+            s1 += a[i + 1];
+            s2 += a[i + 2];
+            s3 += a[i + 3];
+        }
+        for (; i < n; i++)
+            s0 += a[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * @param a First vector
+     * @param b Second vector, same length
+     * @return Dot product of a and b
+     */
+    public 
+    double dot(double[] a, double[] b)
+    {
+        int n = len(a.length, b.length), i = 0;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (; i + 3 < n; i += 4)
+        {
+            s0 = Math.fma(a[i],     b[i],     s0);
+            s1 = Math.fma(a[i + 1], b[i + 1], s1);
+            s2 = Math.fma(a[i + 2], b[i + 2], s2);
+            s3 = Math.fma(a[i + 3], b[i + 3], s3);
+        }
+        for (; i < n; i++)
+            s0 = Math.fma(a[i], b[i], s0);
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * @param a Values
+     * @return Smallest value
+     */
+    public 
+    double min(double[] a)
+    {
+        int n = a.length, i = 0;
+        if (n == 0)
+            return Double.NaN;
+        double m0 = a[0], m1 = m0, m2 = m0, m3 = m0;
+        for (; i + 3 < n; i += 4)
+        {
+            m0 = Math.min(m0, a[i]);
+            m1 = Math.min(m1, a[i + 1]);
+            m2 = Math.min(m2, a[i + 2]);
+            m3 = Math.min(m3, a[i + 3]);
+        }
+        for (; i < n; i++)
+            m0 = Math.min(m0, a[i]);
+        return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+    }
+
+    /**
+     * @param a Values
+     * @return Largest value
+     */
+    public 
+    double max(double[] a)
+    {
+        int n = a.length, i = 0;
+        if (n == 0)
+            return Double.NaN;
+        double m0 = a[0], m1 = m0, m2 = m0, m3 = m0;
+        for (; i + 3 < n; i += 4)
+        {
+            m0 = Math.max(m0, a[i]);
+            m1 = Math.max(m1, a[i + 1]);
+            m2 = Math.max(m2, a[i + 2]);
+            m3 = Math.max(m3, a[i + 3]);
+        }
+        for (; i < n; i++)
+            m0 = Math.max(m0, a[i]);
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+    /**
+     * @param a Values
+     * @return Sum of absolute values
+     */
+    public 
+    double norm1(double[] a)
+    {
+        int n = a.length, i = 0;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (; i + 3 < n; i += 4)
+        {
+            s0 += Math.abs(a[i]);
+            s1 += Math.abs(a[i + 1]);
+            s2 += Math.abs(a[i + 2]);
+            s3 += Math.abs(a[i + 3]);
+        }
+        for (; i < n; i++)
+            s0 += Math.abs(a[i]);
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Euclidean norm. The fast sum of squares is redone on values scaled
+     * by the largest magnitude when it overflows or underflows, so the
+     * result is finite whenever the true norm is.
+     * 
+     * @param a Values
+     * @return Square root of the sum of squares
+     */
+    public 
+    double norm2(double[] a)
+    {
+        double ss = dot(a, a);
+        if (ss > TINY && ss < Double.POSITIVE_INFINITY)
+            return Math.sqrt(ss);
+        double big = norm_inf(a);
+        if (big == 0 || !(big < Double.POSITIVE_INFINITY))
+            return big;
+        // Scale by a power of two so the scaling itself is exact
+        int exp = Math.getExponent(big);
+        double inv = Math.scalb(1.0, -exp), s = 0;
+        for (double v : a)
+        {
+            double x = v * inv;
+            s = Math.fma(x, x, s);
+        }
+        return Math.scalb(Math.sqrt(s), exp);
+    }
+
+    /**
+     * @param a Values
+     * @return Largest absolute value
+     */
+    public 
+    double norm_inf(double[] a)
+    {
+        int n = a.length, i = 0;
+        double m0 = 0, m1 = 0, m2 = 0, m3 = 0;
+        for (; i + 3 < n; i += 4)
+        {
+            m0 = Math.max(m0, Math.abs(a[i]));
+            m1 = Math.max(m1, Math.abs(a[i + 1]));
+            m2 = Math.max(m2, Math.abs(a[i + 2]));
+            m3 = Math.max(m3, Math.abs(a[i + 3]));
+        }
+        for (; i < n; i++)
+            m0 = Math.max(m0, Math.abs(a[i]));
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+
+    // REDUCTIONS, float[] //
+    //
+    /** @return Sum of a, accumulated in double */
+    public 
+    double sum(float[] a)
+    {
+        int n = a.length, i = 0;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (; i + 3 < n; i += 4)
+        {
+            s0 += a[i];
+            s1 += a[i + 1];
+            s2 += a[i + 2];
+            s3 += a[i + 3];
+        }
+        for (; i < n; i++)
+            s0 += a[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /** @return Dot product of a and b, accumulated in double */
+    public 
+    double dot(float[] a, float[] b)
+    {
+        int n = len(a.length, b.length), i = 0;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (; i + 3 < n; i += 4)
+        {
+            s0 += (double) a[i]     * b[i];
+            s1 += (double) a[i + 1] * b[i + 1];
+            s2 += (double) a[i + 2] * b[i + 2];
+            s3 += (double) a[i + 3] * b[i + 3];
+        }
+        for (; i < n; i++)
+            s0 += (double) a[i] * b[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /** @return Smallest value, NaN if empty */
+    public 
+    float min(float[] a)
+    {
+        int n = a.length, i = 0;
+        if (n == 0)
+            return Float.NaN;
+        float m0 = a[0], m1 = m0, m2 = m0, m3 = m0;
+        for (; i + 3 < n; i += 4)
+        {
+            m0 = Math.min(m0, a[i]);
+            m1 = Math.min(m1, a[i + 1]);
+            m2 = Math.min(m2, a[i + 2]);
+            m3 = Math.min(m3, a[i + 3]);
+        }
+        for (; i < n; i++)
+            m0 = Math.min(m0, a[i]);
+        return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+    }
+
+    /** @return Largest value, NaN if empty */
+    public 
+    float max(float[] a)
+    {
+        int n = a.length, i = 0;
+        if (n == 0)
+            return Float.NaN;
+        float m0 = a[0], m1 = m0, m2 = m0, m3 = m0;
+        for (; i + 3 < n; i += 4)
+        {
+            m0 = Math.max(m0, a[i]);
+            m1 = Math.max(m1, a[i + 1]);
+            m2 = Math.max(m2, a[i + 2]);
+            m3 = Math.max(m3, a[i + 3]);
+        }
+        for (; i < n; i++)
+            m0 = Math.max(m0, a[i]);
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+    /** @return Sum of absolute values, accumulated in double */
+    public 
+    double norm1(float[] a)
+    {
+        int n = a.length, i = 0;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (; i + 3 < n; i += 4)
+        {
+            s0 += Math.abs(a[i]);
+            s1 += Math.abs(a[i + 1]);
+            s2 += Math.abs(a[i + 2]);
+            s3 += Math.abs(a[i + 3]);
+        }
+        for (; i < n; i++)
+            s0 += Math.abs(a[i]);
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Squares of floats cannot overflow or underflow a double, so no
+     * rescaling pass is needed.
+     * 
+     * @return Euclidean norm
+     */
+    public 
+    double norm2(float[] a)
+    {
+        return Math.sqrt(dot(a, a));
+    }
+
+    /** @return Largest absolute value */
+    public 
+    float norm_inf(float[] a)
+    {
+        int n = a.length, i = 0;
+        float m0 = 0, m1 = 0, m2 = 0, m3 = 0;
+        for (; i + 3 < n; i += 4)
+        {
+            m0 = Math.max(m0, Math.abs(a[i]));
+            m1 = Math.max(m1, Math.abs(a[i + 1]));
+            m2 = Math.max(m2, Math.abs(a[i + 2]));
+            m3 = Math.max(m3, Math.abs(a[i + 3]));
+        }
+        for (; i < n; i++)
+            m0 = Math.max(m0, Math.abs(a[i]));
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+
+    // REDUCTIONS, Malloc //
+    //
+    // n doubles at address p, with the double[] semantics above.
+    //
+    /** @return Sum of n doubles at p */
+    public 
+    double sum(Malloc m, long p, int n)
+    {
+        long i = 0, e = 8L * n;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (; i + 24 < e; i += 32)
+        {
+            s0 += m.rdouble(p + i);
+            s1 += m.rdouble(p + i + 8);
+            s2 += m.rdouble(p + i + 16);
+            s3 += m.rdouble(p + i + 24);
+        }
+        for (; i < e; i += 8)
+            s0 += m.rdouble(p + i);
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /** @return Dot product of n doubles at a and b */
+    public 
+    double dot(Malloc m, long a, long b, int n)
+    {
+        long i = 0, e = 8L * n;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (; i + 24 < e; i += 32)
+        {
+            s0 = Math.fma(m.rdouble(a + i),      m.rdouble(b + i),      s0);
+            s1 = Math.fma(m.rdouble(a + i + 8),  m.rdouble(b + i + 8),  s1);
+            s2 = Math.fma(m.rdouble(a + i + 16), m.rdouble(b + i + 16), s2);
+            s3 = Math.fma(m.rdouble(a + i + 24), m.rdouble(b + i + 24), s3);
+        }
+        for (; i < e; i += 8)
+            s0 = Math.fma(m.rdouble(a + i), m.rdouble(b + i), s0);
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /** @return Smallest of n doubles at p, NaN if n is 0 */
+    public 
+    double min(Malloc m, long p, int n)
+    {
+        if (n <= 0)
+            return Double.NaN;
+        long i = 0, e = 8L * n;
+        double m0 = m.rdouble(p), m1 = m0, m2 = m0, m3 = m0;
+        for (; i + 24 < e; i += 32)
+        {
+            m0 = Math.min(m0, m.rdouble(p + i));
+            m1 = Math.min(m1, m.rdouble(p + i + 8));
+            m2 = Math.min(m2, m.rdouble(p + i + 16));
+            m3 = Math.min(m3, m.rdouble(p + i + 24));
+        }
+        for (; i < e; i += 8)
+            m0 = Math.min(m0, m.rdouble(p + i));
+        return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+    }
+
+    /** @return Largest of n doubles at p, NaN if n is 0 */
+    public 
+    double max(Malloc m, long p, int n)
+    {
+        if (n <= 0)
+            return Double.NaN;
+        long i = 0, e = 8L * n;
+        double m0 = m.rdouble(p), m1 = m0, m2 = m0, m3 = m0;
+        for (; i + 24 < e; i += 32)
+        {
+            m0 = Math.max(m0, m.rdouble(p + i));
+            m1 = Math.max(m1, m.rdouble(p + i + 8));
+            m2 = Math.max(m2, m.rdouble(p + i + 16));
+            m3 = Math.max(m3, m.rdouble(p + i + 24));
+        }
+        for (; i < e; i += 8)
+            m0 = Math.max(m0, m.rdouble(p + i));
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+    /** @return Sum of absolute values of n doubles at p */
+    public 
+    double norm1(Malloc m, long p, int n)
+    {
+        long i = 0, e = 8L * n;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (; i + 24 < e; i += 32)
+        {
+            s0 += Math.abs(m.rdouble(p + i));
+            s1 += Math.abs(m.rdouble(p + i + 8));
+            s2 += Math.abs(m.rdouble(p + i + 16));
+            s3 += Math.abs(m.rdouble(p + i + 24));
+        }
+        for (; i < e; i += 8)
+            s0 += Math.abs(m.rdouble(p + i));
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /** @return Euclidean norm of n doubles at p, rescaled as norm2(double[]) */
+    public 
+    double norm2(Malloc m, long p, int n)
+    {
+        double ss = dot(m, p, p, n);
+        if (ss > TINY && ss < Double.POSITIVE_INFINITY)
+            return Math.sqrt(ss);
+        double big = norm_inf(m, p, n);
+        if (big == 0 || !(big < Double.POSITIVE_INFINITY))
+            return big;
+        int exp = Math.getExponent(big);
+        double inv = Math.scalb(1.0, -exp), s = 0;
+        for (long i = 0, e = 8L * n; i < e; i += 8)
+        {
+            double x = m.rdouble(p + i) * inv;
+            s = Math.fma(x, x, s);
+        }
+        return Math.scalb(Math.sqrt(s), exp);
+    }
+
+    /** @return Largest absolute value of n doubles at p */
+    public 
+    double norm_inf(Malloc m, long p, int n)
+    {
+        long i = 0, e = 8L * n;
+        double m0 = 0, m1 = 0, m2 = 0, m3 = 0;
+        for (; i + 24 < e; i += 32)
+        {
+            m0 = Math.max(m0, Math.abs(m.rdouble(p + i)));
+            m1 = Math.max(m1, Math.abs(m.rdouble(p + i + 8)));
+            m2 = Math.max(m2, Math.abs(m.rdouble(p + i + 16)));
+            m3 = Math.max(m3, Math.abs(m.rdouble(p + i + 24)));
+        }
+        for (; i < e; i += 8)
+            m0 = Math.max(m0, Math.abs(m.rdouble(p + i)));
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+
+    // HELPERS //
+    //
+    /** Common length n; every source must hold at least n */
+    private static 
+    int len(int n, int a)
+    {
+        if (a < n)
+            throw new IllegalArgumentException("Array length " + a + " < " + n);
+        return n;
+    }
+
+    private static 
+    int len(int n, int a, int b)
+    {
+        return len(len(n, a), b);
+    }
+
+    private static 
+    int len(int n, int a, int b, int c)
+    {
+        return len(len(n, a, b), c);
+    }
 }
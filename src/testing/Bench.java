@@ -0,0 +1,552 @@
+/*
+ * Copyright (c) 2025 CJ Remillard
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package testing;
+
+import CRJLib.Std;
+import CRJLib.assets.KDF;
+import CRJLib.assets.SRand;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.function.Consumer;
+import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Throughput benchmarks for CRJLib.
+ * Each section times a new code path against the one it replaces and
+ * prints the result in MB/s or operations per second. Run with:
+ * 
+ * java -cp bin testing.Bench
+ * 
+ * Numbers are wall-clock after a warm-up pass and are meant for
+ * comparing paths on one machine, not across machines.
+ * 
+ * @author CJ Remillard
+ * @version 1.0
+ */
+public class Bench 
+{
+    /** Size of the generated test file in megabytes */
+    private static final int FILE_MB = 256;
+    /** PBKDF2 iteration count (PHash.DEFAULT_COST) and calls per timing */
+    private static final int KDF_ITER = 1 << 16;
+    private static final int KDF_OPS  = 10;
+    /** Random draws per thread */
+    private static final int RAND_OPS = 200_000;
+    /** Values per parsing timing */
+    private static final int PARSE_N  = 1_000_000;
+    /** Rows and columns of the generated numeric CSV */
+    private static final int COL_ROWS = 2_000_000;
+    private static final int COL_N    = 4;
+    /** Array length (cache-resident) and repetitions per kernel timing */
+    private static final int VEC_N    = 1 << 14;
+    private static final int VEC_REPS = 4_000;
+
+    public static void main(String[] args) throws Exception 
+    {
+        Std std = new Std();
+
+        // Create a file of random bytes to encrypt
+        File plain = new File("bench.bin");
+        byte[] block = new byte[1 << 20];
+        new Random(42).nextBytes(block);
+        try (FileOutputStream out = new FileOutputStream(plain)) 
+        {
+            for (int i = 0; i < FILE_MB; i++)
+                out.write(block);
+        }
+
+        // JCRYPT: stream loop vs FileChannel pipeline vs chunked AES-GCM (all cores)
+        std.coutln("\n=== Jcrypt file encryption (" + FILE_MB + " MB) ===");
+        SecretKey key = std.jcrypt.gen_key("benchPassword");
+        File enc = new File("bench.bin.enc");
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int pass = 0; pass < 2; pass++)
+        {
+            String tag = pass == 0 ? "warm-up " : "";
+
+            long t0 = System.nanoTime();
+            stream_crypt(Cipher.ENCRYPT_MODE, plain, enc, key);
+            stream_crypt(Cipher.DECRYPT_MODE, enc, plain, key);
+            report(std, tag + "CipherOutputStream, 4 KB (old path)", t0, 2L * FILE_MB);
+
+            for (int buf : new int[] { 64 << 10, 1 << 20, 4 << 20 })
+            {
+                t0 = System.nanoTime();
+                std.jcrypt.enc_file(plain.getPath(), key, ".enc", buf);
+                std.jcrypt.dec_file(enc.getPath(), key, ".enc", buf);
+                report(std, tag + "enc_file + dec_file, " + (buf >> 10) + " KB", t0, 2L * FILE_MB);
+            }
+
+            t0 = System.nanoTime();
+            std.jcrypt.enc_gcm(plain, enc, key, new byte[16], 1 << 20, cores);
+            std.jcrypt.dec_gcm(enc, plain, key, cores);
+            report(std, tag + "enc_gcm + dec_gcm (" + cores + " threads)", t0, 2L * FILE_MB);
+        }
+
+        enc.delete();
+        plain.delete();
+
+        // KDF: JCE SecretKeyFactory vs precomputed-pad PBKDF2 engine
+        std.coutln("\n=== PBKDF2 (" + KDF_ITER + " iterations, 128-bit key) ===");
+        char[] pw = "benchPassword".toCharArray();
+        byte[] salt = new byte[16];
+        for (int pass = 0; pass < 2; pass++)
+        {
+            String tag = pass == 0 ? "warm-up " : "";
+            for (String algo : new String[] { KDF.SHA1, KDF.SHA256, KDF.SHA512 })
+            {
+                long t0 = System.nanoTime();
+                for (int i = 0; i < KDF_OPS; i++)
+                    SecretKeyFactory.getInstance(algo)
+                        .generateSecret(new PBEKeySpec(pw, salt, KDF_ITER, 128)).getEncoded();
+                report_ops(std, tag + "SecretKeyFactory " + algo, t0, KDF_OPS);
+
+                t0 = System.nanoTime();
+                for (int i = 0; i < KDF_OPS; i++)
+                    KDF.pbkdf2(algo, pw, salt, KDF_ITER, 128);
+                report_ops(std, tag + "KDF.pbkdf2 " + algo, t0, KDF_OPS);
+            }
+        }
+
+        // SRAND: one shared SecureRandom vs per-thread buffered DRBGs, 16-byte salts
+        int threads = Math.max(4, cores);
+        std.coutln("\n=== Secure random, 16-byte draws on " + threads + " threads ===");
+        SecureRandom shared = new SecureRandom();
+        for (int pass = 0; pass < 2; pass++)
+        {
+            String tag = pass == 0 ? "warm-up " : "";
+
+            long t0 = System.nanoTime();
+            contend(threads, b -> shared.nextBytes(b));
+            report_ops(std, tag + "shared SecureRandom", t0, (long) threads * RAND_OPS);
+
+            t0 = System.nanoTime();
+            contend(threads, b -> SRand.next_bytes(b));
+            report_ops(std, tag + "SRand.next_bytes", t0, (long) threads * RAND_OPS);
+        }
+
+        parse_bench(std);
+        int_bench(std);
+        column_bench(std);
+        format_bench(std);
+        kernel_bench(std);
+    }
+
+    /**
+     * Parse section: a property check of Parse against the JDK, then timing
+     * on the kind of text numeric CSVs hold.
+     */
+    private static void parse_bench(Std std) 
+    {
+        std.coutln("\n=== Decimal to double/float (" + PARSE_N + " values) ===");
+        Random r = new Random(46);
+
+        // Property check: shortest round-trip strings and random
+        // significands/exponents must match the JDK bit for bit
+        long bad = 0;
+        for (int i = 0; i < PARSE_N; i++)
+        {
+            String a = Double.toString(Double.longBitsToDouble(r.nextLong()));
+            String b = (r.nextLong() >>> r.nextInt(64)) + "e" + (r.nextInt(700) - 350);
+            for (String t : new String[] { a, b })
+            {
+                if (Double.doubleToRawLongBits(std.pars.str_double(t, 0)) != Double.doubleToRawLongBits(Double.parseDouble(t)))
+                    bad++;
+                if (Float.floatToRawIntBits(std.pars.str_float(t, 0)) != Float.floatToRawIntBits(Float.parseFloat(t)))
+                    bad++;
+            }
+        }
+        std.coutln("property check vs Double/Float.parse*: " + (4L * PARSE_N) + " cases, " + bad + " mismatches");
+
+        // Typical column text: prices, measurements and full-precision doubles
+        String[] text = new String[PARSE_N];
+        for (int i = 0; i < PARSE_N; i++)
+        {
+            switch (i % 3)
+            {
+                case 0:  text[i] = String.format("%.2f", r.nextDouble() * 1000); break;
+                case 1:  text[i] = String.format("%.6f", r.nextGaussian() * 50); break;
+                default: text[i] = Double.toString(r.nextDouble() * Math.pow(10, r.nextInt(40) - 20));
+            }
+        }
+        byte[][] raw = new byte[PARSE_N][];
+        for (int i = 0; i < PARSE_N; i++)
+            raw[i] = text[i].getBytes(java.nio.charset.StandardCharsets.ISO_8859_1);
+
+        double sink = 0;
+        for (int pass = 0; pass < 3; pass++)
+        {
+            String tag = pass < 2 ? "warm-up " : "";
+
+            long t0 = System.nanoTime();
+            for (String t : text)
+                sink += Double.parseDouble(t);
+            report_ops(std, tag + "Double.parseDouble(String)", t0, PARSE_N);
+
+            t0 = System.nanoTime();
+            for (String t : text)
+                sink += std.pars.str_double(t, 0);
+            report_ops(std, tag + "Parse.str_double(CharSequence)", t0, PARSE_N);
+
+            t0 = System.nanoTime();
+            for (byte[] b : raw)
+                sink += std.pars.bytes_double(b, 0, b.length, 0);
+            report_ops(std, tag + "Parse.bytes_double(byte[])", t0, PARSE_N);
+
+            t0 = System.nanoTime();
+            for (String t : text)
+                sink += Float.parseFloat(t);
+            report_ops(std, tag + "Float.parseFloat(String)", t0, PARSE_N);
+
+            t0 = System.nanoTime();
+            for (byte[] b : raw)
+                sink += std.pars.bytes_float(b, 0, b.length, 0);
+            report_ops(std, tag + "Parse.bytes_float(byte[])", t0, PARSE_N);
+        }
+        if (sink == 42)
+            std.coutln("");
+    }
+
+    /**
+     * Integer section: JDK parse vs SWAR single-value and bulk parsing of
+     * a comma-separated buffer, for mixed 1 to 19 digit values and for
+     * 16-digit ids, where the 8-digit steps matter most.
+     */
+    private static void int_bench(Std std) 
+    {
+        Random r = new Random(47);
+        for (boolean ids : new boolean[] { false, true })
+        {
+            std.coutln("\n=== Decimal to long, " + (ids ? "16-digit ids" : "mixed lengths") + " (" + PARSE_N + " values) ===");
+            String[] text = new String[PARSE_N];
+            StringBuilder csv = new StringBuilder();
+            for (int i = 0; i < PARSE_N; i++)
+            {
+                text[i] = ids ? Long.toString(1_000_000_000_000_000L + (r.nextLong() >>> 1) % 9_000_000_000_000_000L)
+                              : Long.toString(r.nextLong() >> r.nextInt(63));
+                csv.append(text[i]).append(i % 16 == 15 ? '\n' : ',');
+            }
+            byte[] all = csv.toString().getBytes(java.nio.charset.StandardCharsets.ISO_8859_1);
+            byte[][] raw = new byte[PARSE_N][];
+            for (int i = 0; i < PARSE_N; i++)
+                raw[i] = text[i].getBytes(java.nio.charset.StandardCharsets.ISO_8859_1);
+            long[] out = new long[PARSE_N];
+
+            long sink = 0;
+            for (int pass = 0; pass < 3; pass++)
+            {
+                String tag = pass < 2 ? "warm-up " : "";
+
+                long t0 = System.nanoTime();
+                for (String t : text)
+                    sink += Long.parseLong(t);
+                report_ops(std, tag + "Long.parseLong(String)", t0, PARSE_N);
+
+                t0 = System.nanoTime();
+                for (byte[] b : raw)
+                    sink += std.pars.bytes_long(b, 0, b.length, 0);
+                report_ops(std, tag + "Parse.bytes_long(byte[]), SWAR", t0, PARSE_N);
+
+                t0 = System.nanoTime();
+                sink += std.pars.parse_longs(all, 0, all.length, (byte) ',', out);
+                report_ops(std, tag + "Parse.parse_longs(buffer), bulk", t0, PARSE_N);
+            }
+            if (sink == 42)
+                std.coutln("");
+        }
+    }
+
+    /**
+     * Column loader section: BufferedReader, split and Double.parseDouble
+     * into growable lists vs FIO.Columns on the same numeric CSV.
+     */
+    private static void column_bench(Std std) throws Exception 
+    {
+        std.coutln("\n=== Numeric CSV to columns (" + COL_ROWS + " x " + COL_N + ") ===");
+        File csv = new File("bench.csv");
+        Random r = new Random(48);
+        try (BufferedWriter w = new BufferedWriter(new FileWriter(csv), 1 << 16)) 
+        {
+            w.write("a,b,c,d\n");
+            for (int i = 0; i < COL_ROWS; i++)
+                w.write(i + "," + (r.nextInt(100_000) / 100.0) + "," + r.nextDouble() + "," + r.nextInt(1000) + "\n");
+        }
+        long mb = Math.max(1, csv.length() >> 20);
+
+        double sink = 0;
+        for (int pass = 0; pass < 3; pass++)
+        {
+            String tag = pass < 2 ? "warm-up " : "";
+
+            long t0 = System.nanoTime();
+            double[][] cols = new double[COL_N][16];
+            int n = 0;
+            try (BufferedReader in = new BufferedReader(new FileReader(csv))) 
+            {
+                in.readLine();
+                String line;
+                while ((line = in.readLine()) != null)
+                {
+                    String[] f = line.split(",");
+                    if (n == cols[0].length)
+                        for (int c = 0; c < COL_N; c++)
+                            cols[c] = java.util.Arrays.copyOf(cols[c], n * 2);
+                    for (int c = 0; c < COL_N; c++)
+                        cols[c][n] = Double.parseDouble(f[c]);
+                    n++;
+                }
+            }
+            sink += cols[2][n - 1];
+            report(std, tag + "readLine + split + parseDouble", t0, mb);
+
+            t0 = System.nanoTime();
+            double[][] got = std.fi.Columns(csv.getPath(), ',').skip(1).doubles();
+            sink += got[2][COL_ROWS - 1];
+            report(std, tag + "FIO.Columns.doubles() (all cores)", t0, mb);
+        }
+        if (sink == 42)
+            std.coutln("");
+        csv.delete();
+    }
+
+    /**
+     * Formatting section: a round-trip check of Fmt.put_double, then
+     * String.valueOf + getBytes vs Fmt into one reused byte[].
+     */
+    private static void format_bench(Std std) 
+    {
+        std.coutln("\n=== Number to text (" + PARSE_N + " values) ===");
+        Random r = new Random(49);
+        byte[] buf = new byte[64];
+
+        // Property check: parses back bit for bit, never longer than toString
+        // beyond Fmt's two-digit minimum
+        int checked = 0;
+        for (int i = 0; i < PARSE_N; i++)
+        {
+            double d = Double.longBitsToDouble(r.nextLong());
+            if (Double.isNaN(d))
+                continue;
+            int n = std.fmt.put_double(buf, 0, d);
+            String s = new String(buf, 0, n, java.nio.charset.StandardCharsets.ISO_8859_1);
+            if (Double.doubleToLongBits(Double.parseDouble(s)) != Double.doubleToLongBits(d)
+                || n > Math.max(Double.toString(d).length(), 6))
+                throw new IllegalStateException("Fmt.put_double(" + Double.toString(d) + ") = " + s);
+            checked++;
+        }
+        std.coutln("round-trip check passed for " + checked + " doubles");
+
+        long[] longs = new long[PARSE_N];
+        double[] doubles = new double[PARSE_N];
+        for (int i = 0; i < PARSE_N; i++)
+        {
+            longs[i] = r.nextLong() >> r.nextInt(63);
+            doubles[i] = i % 2 == 0 ? r.nextInt(1_000_000) / 100.0 : r.nextDouble() * 1e6;
+        }
+
+        long sink = 0;
+        for (int pass = 0; pass < 3; pass++)
+        {
+            String tag = pass < 2 ? "warm-up " : "";
+
+            long t0 = System.nanoTime();
+            for (long v : longs)
+                sink += String.valueOf(v).getBytes(java.nio.charset.StandardCharsets.ISO_8859_1).length;
+            report_ops(std, tag + "String.valueOf(long).getBytes()", t0, PARSE_N);
+
+            t0 = System.nanoTime();
+            for (long v : longs)
+                sink += std.fmt.put_long(buf, 0, v);
+            report_ops(std, tag + "Fmt.put_long(byte[])", t0, PARSE_N);
+
+            t0 = System.nanoTime();
+            for (double v : doubles)
+                sink += String.valueOf(v).getBytes(java.nio.charset.StandardCharsets.ISO_8859_1).length;
+            report_ops(std, tag + "String.valueOf(double).getBytes()", t0, PARSE_N);
+
+            t0 = System.nanoTime();
+            for (double v : doubles)
+                sink += std.fmt.put_double(buf, 0, v);
+            report_ops(std, tag + "Fmt.put_double(byte[]), Schubfach", t0, PARSE_N);
+        }
+        if (sink == 42)
+            std.coutln("");
+    }
+
+    /**
+     * Scimat section: single-thread throughput of the array kernels
+     * against the obvious loop, on arrays that stay in cache so the
+     * numbers reflect per-core compute rather than memory bandwidth.
+     */
+    private static void kernel_bench(Std std) 
+    {
+        std.coutln("\n=== Scimat kernels, one core (" + VEC_N + " doubles x " + VEC_REPS + ") ===");
+        Random r = new Random(50);
+        double[] a = new double[VEC_N], b = new double[VEC_N], c = new double[VEC_N], d = new double[VEC_N];
+        for (int i = 0; i < VEC_N; i++)
+        {
+            a[i] = r.nextDouble();
+            b[i] = r.nextDouble();
+            c[i] = r.nextDouble();
+        }
+        long ops = (long) VEC_N * VEC_REPS;
+
+        double sink = 0;
+        for (int pass = 0; pass < 3; pass++)
+        {
+            String tag = pass < 2 ? "warm-up " : "";
+
+            long t0 = System.nanoTime();
+            for (int k = 0; k < VEC_REPS; k++)
+            {
+                double s = 0;
+                for (int i = 0; i < VEC_N; i++)
+                    s += a[i];
+                sink += s;
+            }
+            report_ops(std, tag + "sum, one accumulator", t0, ops);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < VEC_REPS; k++)
+                sink += std.sim.sum(a);
+            report_ops(std, tag + "Scimat.sum", t0, ops);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < VEC_REPS; k++)
+            {
+                double s = 0;
+                for (int i = 0; i < VEC_N; i++)
+                    s += a[i] * b[i];
+                sink += s;
+            }
+            report_ops(std, tag + "dot, one accumulator", t0, ops);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < VEC_REPS; k++)
+                sink += std.sim.dot(a, b);
+            report_ops(std, tag + "Scimat.dot", t0, ops);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < VEC_REPS; k++)
+                for (int i = 0; i < VEC_N; i++)
+                    d[i] = newton_sqrt(a[i]);
+            sink += d[VEC_N - 1];
+            report_ops(std, tag + "sqrt, Newton loop (old Scimat.sqrt)", t0, ops);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < VEC_REPS; k++)
+                std.sim.sqrt(a, d);
+            sink += d[VEC_N - 1];
+            report_ops(std, tag + "Scimat.sqrt(double[])", t0, ops);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < VEC_REPS; k++)
+                std.sim.fma(a, b, c, d);
+            sink += d[VEC_N - 1];
+            report_ops(std, tag + "Scimat.fma(double[])", t0, ops);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < VEC_REPS; k++)
+                std.sim.add(a, b, d);
+            sink += d[VEC_N - 1];
+            report_ops(std, tag + "Scimat.add(double[])", t0, ops);
+        }
+        if (sink == 42)
+            std.coutln("");
+    }
+
+    /** Run RAND_OPS draws into a 16-byte array on each of n threads at once. */
+    private static void contend(int n, Consumer<byte[]> draw) throws InterruptedException 
+    {
+        Thread[] ts = new Thread[n];
+        for (int i = 0; i < n; i++)
+        {
+            ts[i] = new Thread(() -> {
+                byte[] salt = new byte[16];
+                for (int j = 0; j < RAND_OPS; j++)
+                    draw.accept(salt);
+            });
+            ts[i].start();
+        }
+        for (Thread t : ts)
+            t.join();
+    }
+
+    /** The Newton iteration Scimat.sqrt used before Math.sqrt, kept for comparison. */
+    private static double newton_sqrt(double n) 
+    {
+        if (n <= 0.0 || n == 1.0)
+            return n < 0.0 ? 0.0 : n;
+        double guess = Double.longBitsToDouble((Double.doubleToLongBits(n) >> 1) + 0x1ff0000000000000L);
+        for (int i = 0; i < 100; i++)
+        {
+            double prev = guess;
+            guess = (guess + n / guess) / 2.0;
+            if (Math.abs(guess - prev) <= 1e-15 * Math.abs(guess))
+                break;
+        }
+        return guess;
+    }
+
+    /** The stream loop enc_file used before the FileChannel pipeline, kept for comparison. */
+    private static void stream_crypt(int mode, File in, File out, SecretKey key) throws Exception 
+    {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(mode, key);
+        try (FileInputStream fis = new FileInputStream(in);
+             FileOutputStream fos = new FileOutputStream(out);
+             CipherOutputStream cos = new CipherOutputStream(fos, cipher)) 
+        {
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = fis.read(buf)) != -1)
+                cos.write(buf, 0, n);
+        }
+    }
+
+    /** Print operations per second for ops operations since t0. */
+    private static void report_ops(Std std, String name, long t0, long ops) 
+    {
+        double s = (System.nanoTime() - t0) / 1e9;
+        std.coutln(String.format("%-48s %8.1f ops/s", name, ops / s));
+    }
+
+    /** Print throughput for mb megabytes processed since t0. */
+    private static void report(Std std, String name, long t0, long mb) 
+    {
+        double s = (System.nanoTime() - t0) / 1e9;
+        std.coutln(String.format("%-48s %8.1f MB/s", name, mb / s));
+    }
+}
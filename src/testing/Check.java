@@ -0,0 +1,608 @@
+/*
+ * Copyright (c) 2025 CJ Remillard
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package testing;
+
+import CRJLib.Std;
+import CRJLib.assets.FIO;
+import CRJLib.assets.Jcrypt;
+import CRJLib.assets.KDF;
+import CRJLib.assets.PHash;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Regression checks for CRJLib.
+ * Each section drives one component through its public API, including the
+ * failure paths, and throws IllegalStateException on the first wrong
+ * result, so a run that prints every section and exits 0 has passed. Run
+ * with:
+ * 
+ * java -cp bin testing.Check
+ * 
+ * Files are made under a temporary directory that is removed at the end.
+ * 
+ * @author CJ Remillard
+ * @version 1.0
+ */
+public class Check 
+{
+    /** Plaintext bytes per chunk in the chunked AES-GCM checks */
+    private static final int GCM_CHUNK = 4096;
+    /** Bytes of the chunked AES-GCM header, and where its fields start */
+    private static final int GCM_HEADER = 46;
+    private static final int[] HEADER_FIELDS = { 0, 4, 5, 6, 22, 38, 42 };
+
+    private static int checks;
+
+    /** A step that must throw. */
+    private interface Step
+    {
+        void run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception 
+    {
+        Std std = new Std();
+        Path dir = Files.createTempDirectory("crjlib-check");
+        try 
+        {
+            section(std, "chunked AES-GCM", () -> gcm_check(std, dir));
+            section(std, "GcmReader", () -> reader_check(std, dir));
+            section(std, "KeyCache", () -> key_cache_check());
+            section(std, "KDF vs SecretKeyFactory", () -> kdf_check());
+            section(std, "Batch", () -> batch_check(std, dir));
+            section(std, "PHash Bulk", () -> bulk_check());
+            section(std, "PGzip and gz/df streams", () -> gzip_check(std, dir));
+            section(std, "Records", () -> records_check(std, dir));
+            section(std, "Cache", () -> cache_check(std, dir));
+            section(std, "Walk", () -> walk_check(std, dir));
+            section(std, "Columns", () -> columns_check(std, dir));
+            section(std, "Tail", () -> tail_check(std, dir));
+        } finally 
+        {
+            try (Stream<Path> s = Files.walk(dir)) 
+            {
+                s.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+        std.coutln("\nall checks passed (" + checks + ")");
+    }
+
+    /** Run one section and report how many checks it made. */
+    private static void section(Std std, String name, Step body) throws Exception 
+    {
+        int before = checks;
+        body.run();
+        std.coutln(String.format("%-32s ok (%d checks)", name, checks - before));
+    }
+
+    /**
+     * Chunked AES-GCM: round trips at chunk-edge sizes, then every kind of
+     * tampering a file can suffer must fail dec_gcm and leave no output.
+     */
+    private static void gcm_check(Std std, Path dir) throws Exception 
+    {
+        Jcrypt j = std.jcrypt;
+        SecretKey key = j.gen_key("checkPassword");
+        SecretKey other = j.gen_key("otherPassword");
+        File plain = dir.resolve("gcm.bin").toFile();
+        File enc = dir.resolve("gcm.bin.gcm").toFile();
+        File out = dir.resolve("gcm.out").toFile();
+        Random r = new Random(31);
+
+        for (int n : new int[] { 0, 1, GCM_CHUNK - 1, GCM_CHUNK, GCM_CHUNK + 1, 3 * GCM_CHUNK + 7 })
+        {
+            byte[] data = new byte[n];
+            r.nextBytes(data);
+            Files.write(plain.toPath(), data);
+            for (int threads : new int[] { 1, 3 })
+            {
+                j.enc_gcm(plain, enc, key, new byte[16], GCM_CHUNK, threads);
+                j.dec_gcm(enc, out, key, threads);
+                check(Arrays.equals(data, Files.readAllBytes(out.toPath())), "enc_gcm round trip, " + n + " bytes");
+            }
+            j.enc_gcm_deflate(plain, enc, key, new byte[16], 6);
+            j.dec_gcm(enc, out, key, 2);
+            check(Arrays.equals(data, Files.readAllBytes(out.toPath())), "enc_gcm_deflate round trip, " + n + " bytes");
+        }
+        rejects("deflate level 10", () -> j.enc_gcm_deflate(plain, enc, key, new byte[16], 10));
+
+        // Same plaintext and key, fresh file nonce: the ciphertexts differ
+        byte[] data = new byte[3 * GCM_CHUNK + 100];
+        r.nextBytes(data);
+        Files.write(plain.toPath(), data);
+        j.enc_gcm(plain, enc, key, new byte[16], GCM_CHUNK, 2);
+        byte[] good = Files.readAllBytes(enc.toPath());
+        j.enc_gcm(plain, enc, key, new byte[16], GCM_CHUNK, 2);
+        check(!Arrays.equals(good, Files.readAllBytes(enc.toPath())), "fresh nonce per file");
+
+        int stride = GCM_CHUNK + 16;
+        int last = GCM_HEADER + 3 * stride;
+        List<byte[]> bad = new ArrayList<>();
+        List<String> why = new ArrayList<>();
+
+        bad.add(Arrays.copyOf(good, last));                             why.add("last chunk dropped");
+        bad.add(Arrays.copyOf(good, good.length - 1));                  why.add("one byte cut");
+        bad.add(Arrays.copyOf(good, GCM_HEADER));                       why.add("header only");
+        bad.add(Arrays.copyOf(good, 10));                               why.add("short header");
+        byte[] swap = good.clone();
+        System.arraycopy(good, GCM_HEADER + stride, swap, GCM_HEADER, stride);
+        System.arraycopy(good, GCM_HEADER, swap, GCM_HEADER + stride, stride);
+        bad.add(swap);                                                  why.add("chunks 0 and 1 swapped");
+        byte[] twice = Arrays.copyOf(good, good.length + (good.length - last));
+        System.arraycopy(good, last, twice, good.length, good.length - last);
+        bad.add(twice);                                                 why.add("last chunk appended again");
+        bad.add(Arrays.copyOf(good, good.length + 1));                  why.add("one byte appended");
+        for (int at : HEADER_FIELDS)
+        {
+            byte[] h = good.clone();
+            h[at] ^= 1;
+            bad.add(h);                                                 why.add("header byte " + at + " flipped");
+        }
+        byte[] body = good.clone();
+        body[GCM_HEADER + stride + 5] ^= 0x40;
+        bad.add(body);                                                  why.add("ciphertext bit flipped");
+        byte[] tag = good.clone();
+        tag[good.length - 1] ^= 1;
+        bad.add(tag);                                                   why.add("last tag bit flipped");
+
+        File t = dir.resolve("tampered.gcm").toFile();
+        for (int i = 0; i < bad.size(); i++)
+        {
+            Files.write(t.toPath(), bad.get(i));
+            out.delete();
+            rejects(why.get(i), () -> j.dec_gcm(t, out, key, 2));
+            check(!out.exists(), why.get(i) + ": output removed");
+        }
+        rejects("wrong key", () -> j.dec_gcm(enc, out, other, 2));
+        check(!out.exists(), "wrong key: output removed");
+
+        plain.delete();
+        enc.delete();
+        t.delete();
+    }
+
+    /** GcmReader: random reads match the plaintext; a damaged chunk fails only its reads. */
+    private static void reader_check(Std std, Path dir) throws Exception 
+    {
+        Jcrypt j = std.jcrypt;
+        SecretKey key = j.gen_key("checkPassword");
+        File plain = dir.resolve("reader.bin").toFile();
+        File enc = dir.resolve("reader.bin.gcm").toFile();
+        Random r = new Random(32);
+        byte[] data = new byte[5 * GCM_CHUNK + 123];
+        r.nextBytes(data);
+        Files.write(plain.toPath(), data);
+        j.enc_gcm(plain, enc, key, new byte[16], GCM_CHUNK, 2);
+
+        try (Jcrypt.GcmReader in = j.GcmReader(enc.getPath(), key)) 
+        {
+            check(in.size() == data.length, "size()");
+            byte[] buf = new byte[3 * GCM_CHUNK];
+            for (int i = 0; i < 200; i++)
+            {
+                long pos = r.nextInt(data.length);
+                int n = in.read(pos, buf, 1, 1 + r.nextInt(buf.length - 1));
+                check(n > 0 && Arrays.equals(buf, 1, 1 + n, data, (int) pos, (int) pos + n), "read at " + pos);
+            }
+            check(in.read(data.length, buf, 0, 10) == -1, "read at end");
+        }
+
+        byte[] b = Files.readAllBytes(enc.toPath());
+        b[GCM_HEADER + 2 * (GCM_CHUNK + 16) + 9] ^= 1;
+        Files.write(enc.toPath(), b);
+        try (Jcrypt.GcmReader in = j.GcmReader(enc.getPath(), key)) 
+        {
+            byte[] buf = new byte[100];
+            check(in.read(0, buf, 0, 100) == 100 && Arrays.equals(buf, Arrays.copyOf(data, 100)), "undamaged chunk");
+            rejects("damaged chunk", () -> in.read(2 * GCM_CHUNK + 50, buf, 0, 100));
+        }
+        plain.delete();
+        enc.delete();
+    }
+
+    /** KeyCache: one KDF run per (password, salt), bounded size, clear(). */
+    private static void key_cache_check() throws Exception 
+    {
+        Jcrypt j = new Jcrypt();
+        byte[] salt = "saltsaltsaltsalt".getBytes(StandardCharsets.US_ASCII);
+        SecretKey a = j.gen_key("pw".toCharArray(), salt);
+        SecretKey b = j.gen_key("pw".toCharArray(), salt);
+        check(j.keys.misses() == 1 && j.keys.hits() == 1, "second lookup is a hit");
+        check(Arrays.equals(a.getEncoded(), b.getEncoded()), "cached key matches");
+        check(a != b, "cached keys are copies");
+        check(Arrays.equals(a.getEncoded(), KDF.pbkdf2(KDF.SHA256, "pw".toCharArray(), salt, Jcrypt.KDF_ITER, 256)),
+              "cached key is the KDF output");
+        check(!Arrays.equals(a.getEncoded(), j.gen_key("pw2".toCharArray(), salt).getEncoded()), "other password");
+        check(!Arrays.equals(a.getEncoded(), j.gen_key("pw".toCharArray(), new byte[16]).getEncoded()), "other salt");
+
+        for (int i = 0; i < Jcrypt.KEY_CACHE_MAX + 6; i++)
+            j.gen_key("pw".toCharArray(), ("salt" + i).getBytes(StandardCharsets.US_ASCII));
+        check(j.keys.size() <= Jcrypt.KEY_CACHE_MAX, "size bounded");
+        j.keys.clear();
+        check(j.keys.size() == 0, "clear()");
+    }
+
+    /** KDF: bit-for-bit equal to the JCE over hashes, lengths and iteration counts. */
+    private static void kdf_check() throws Exception 
+    {
+        Random r = new Random(39);
+        for (String algo : new String[] { KDF.SHA1, KDF.SHA256, KDF.SHA512 })
+        {
+            SecretKeyFactory f = SecretKeyFactory.getInstance(algo);
+            for (int it : new int[] { 1, 2, 1000, 5000 })
+                for (int bytes : new int[] { 16, 20, 64, 100 })
+                {
+                    char[] pw = new char[1 + r.nextInt(150)];
+                    for (int i = 0; i < pw.length; i++)
+                        pw[i] = (char) (' ' + r.nextInt(95));
+                    byte[] salt = new byte[1 + r.nextInt(32)];
+                    r.nextBytes(salt);
+                    byte[] want = f.generateSecret(new PBEKeySpec(pw, salt, it, 8 * bytes)).getEncoded();
+                    check(Arrays.equals(want, KDF.pbkdf2(algo, pw, salt, it, 8 * bytes)),
+                          algo + ", " + it + " iterations, " + bytes + " bytes");
+                }
+        }
+        rejects("0 iterations", () -> KDF.pbkdf2(KDF.SHA1, "x".toCharArray(), new byte[8], 0, 128));
+        rejects("unknown algorithm", () -> KDF.pbkdf2("PBKDF2WithHmacMD5", "x".toCharArray(), new byte[8], 1, 128));
+    }
+
+    /** Batch: encrypt and decrypt a tree in place; cancel before a run; .part names are user files. */
+    private static void batch_check(Std std, Path dir) throws Exception 
+    {
+        Jcrypt j = std.jcrypt;
+        SecretKey key = j.gen_key("checkPassword");
+        Path root = Files.createDirectories(dir.resolve("batch"));
+        Path sub = Files.createDirectories(root.resolve("sub"));
+        Random r = new Random(37);
+        List<Path> files = new ArrayList<>();
+        List<byte[]> data = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+        {
+            byte[] b = new byte[i == 7 ? 50_000 : r.nextInt(3000)];
+            r.nextBytes(b);
+            Path p = (i % 2 == 0 ? root : sub).resolve(i == 3 ? "notes.part" : "f" + i + ".dat");
+            Files.write(p, b);
+            files.add(p);
+            data.add(b);
+        }
+
+        Jcrypt.Batch none = j.Batch(root.toString(), key, ".gcm");
+        none.cancel();
+        check(none.enc() == 0, "cancel before enc()");
+        check(Files.exists(files.get(0)), "cancelled run left files alone");
+
+        Jcrypt.Batch b = j.Batch(root.toString(), key, ".gcm").threads(3).large(10_000);
+        List<File> seen = Collections.synchronizedList(new ArrayList<>());
+        b.on_file(d -> seen.add(d.file));
+        check(b.enc() == files.size() && seen.size() == files.size(), "enc() covers every file");
+        for (Path p : files)
+            check(!Files.exists(p) && Files.exists(Path.of(p + ".gcm")), "encrypted in place: " + p.getFileName());
+        double rate = b.rate();
+        Thread.sleep(20);
+        check(rate == b.rate(), "rate() fixed after the run");
+
+        check(j.Batch(root.toString(), key, ".gcm").dec() == files.size(), "dec() covers every file");
+        for (int i = 0; i < files.size(); i++)
+            check(Arrays.equals(data.get(i), Files.readAllBytes(files.get(i))), "restored: " + files.get(i).getFileName());
+    }
+
+    /** PHash Bulk: ordered sink, verifiable tokens, cancel before run. */
+    private static void bulk_check() throws Exception 
+    {
+        PHash ph = new PHash(4);
+        List<String> pws = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            pws.add("password" + i);
+
+        PHash.Bulk none = ph.Bulk(pws);
+        none.cancel();
+        check(none.run()[0] == null && none.done() == 0, "cancel before run()");
+
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        PHash.Bulk b = ph.Bulk(pws).threads(3).from(10);
+        b.on_token((i, t) -> order.add(i));
+        String[] out = b.run();
+        check(out[9] == null && b.next() == pws.size(), "from() and next()");
+        for (int i = 0; i < order.size(); i++)
+            check(order.get(i) == 10 + i, "sink in index order");
+        check(order.size() == 90, "sink saw every token");
+        for (int i = 10; i < pws.size(); i++)
+            check(ph.auth(pws.get(i), out[i]) && !ph.auth("wrong", out[i]), "token " + i + " verifies");
+    }
+
+    /** PGzip: multi-member output reads back at every block edge, empty input included. */
+    private static void gzip_check(Std std, Path dir) throws Exception 
+    {
+        FIO fi = std.fi;
+        String gz = dir.resolve("check.gz").toString();
+        Random r = new Random(27);
+        for (int n : new int[] { 0, 1, 999, 1000, 1001, 3007, 100_000 })
+        {
+            byte[] data = new byte[n];
+            for (int i = 0; i < n; i++)
+                data[i] = (byte) ('a' + r.nextInt(4));
+            for (int threads : new int[] { 1, 3 })
+            {
+                try (OutputStream out = threads == 1 ? fi.gz_out(gz, 6, 4096) : fi.PGzip(gz, 6, 1000, threads)) 
+                {
+                    out.write(data);
+                }
+                try (InputStream in = fi.gz_in(gz, 4096)) 
+                {
+                    check(Arrays.equals(data, in.readAllBytes()), "gzip round trip, " + n + " bytes, " + threads + " threads");
+                }
+            }
+            try (OutputStream out = fi.df_out(gz, 1, 4096)) 
+            {
+                out.write(data);
+            }
+            try (InputStream in = fi.df_in(gz, 4096)) 
+            {
+                check(Arrays.equals(data, in.readAllBytes()), "deflate round trip, " + n + " bytes");
+            }
+        }
+
+        fi.write_gz(gz, "", -1, 4);
+        check(fi.read_gz(gz).length == 0 && new File(gz).length() > 0, "empty PGzip file is valid gzip");
+        fi.write_gz(gz, "one\ntwo", -1, 4);
+        check(Arrays.equals(fi.read_gz(gz), new String[] { "one", "two" }), "write_gz/read_gz");
+
+        FIO.PGzip p = fi.PGzip(gz, 1, 100, 2);
+        p.close();
+        rejects("write after close", () -> p.write(1));
+        rejects("PGzip level 10", () -> fi.PGzip(gz, 10, 100, 2));
+        rejects("gz_out level 10", () -> fi.gz_out(gz, 10, 100));
+        rejects("df_out level -2", () -> fi.df_out(gz, -2, 100));
+    }
+
+    /** Records: quoting, escapes, CRLF, projection and typed accessors. */
+    private static void records_check(Std std, Path dir) throws Exception 
+    {
+        Path csv = dir.resolve("records.csv");
+        Files.write(csv, ("id,name,val\n"
+                        + "1,\"a,b\",2.5\n"
+                        + "2,\"say \"\"hi\"\"\",-3\r\n"
+                        + "3,\"multi\nline\",7e2\n"
+                        + "4,x\\,y,8\n").getBytes(StandardCharsets.US_ASCII));
+
+        String[][] want = { { "1", "a,b", "2.5" }, { "2", "say \"hi\"", "-3" }, { "3", "multi\nline", "7e2" }, { "4", "x,y", "8" } };
+        try (FIO.Records rec = std.fi.Records(csv.toString(), ',').escape('\\')) 
+        {
+            check(rec.next() && rec.str(0).equals("id"), "header row");
+            for (String[] row : want)
+            {
+                check(rec.next() && rec.fields() == 3, "row " + row[0] + " has 3 fields");
+                for (int c = 0; c < 3; c++)
+                    check(rec.str(c).equals(row[c]), "row " + row[0] + ", column " + c);
+                check(rec.get_long(0) == Long.parseLong(row[0]), "get_long");
+                check(rec.get_double(2) == Double.parseDouble(row[2]), "get_double");
+            }
+            check(!rec.next(), "end of file");
+        }
+        try (FIO.Records rec = std.fi.Records(csv.toString(), ',').select(0, 2)) 
+        {
+            rec.next();
+            rec.next();
+            check(rec.len(1) == -1 && rec.str(2).equals("2.5"), "select() skips column 1");
+        }
+        try (FIO.Records rec = std.fi.Records(csv.toString(), ',')) 
+        {
+            rejects("non-ASCII escape", () -> rec.escape((char) 0xe9));
+            rejects("delimiter as escape", () -> rec.escape(','));
+        }
+        rejects("quote as delimiter", () -> std.fi.Records(csv.toString(), '"'));
+    }
+
+    /** Cache: hits, reload on change, invalidate, eviction by weight. */
+    private static void cache_check(Std std, Path dir) throws Exception 
+    {
+        Path a = dir.resolve("cache-a.txt"), b = dir.resolve("cache-b.txt"), c = dir.resolve("cache-c.txt");
+        Files.write(a, "one\ntwo\n".getBytes(StandardCharsets.US_ASCII));
+        byte[] big = new byte[400];
+        Arrays.fill(big, (byte) 'x');
+        Files.write(b, big);
+        Files.write(c, big);
+
+        FIO.Cache cache = std.fi.Cache(1000);
+        check(Arrays.equals(cache.lines(a.toString()), new String[] { "one", "two" }), "lines()");
+        cache.bytes(a.toString());
+        check(cache.loads() == 1 && cache.hits() >= 1, "second read is a hit");
+
+        Files.write(a, "one\ntwo\nthree\n".getBytes(StandardCharsets.US_ASCII));
+        check(cache.lines(a.toString()).length == 3 && cache.loads() == 2, "reload after change");
+        cache.invalidate(a.toString());
+        cache.bytes(a.toString());
+        check(cache.loads() == 3, "invalidate()");
+
+        cache.bytes(b.toString());
+        cache.bytes(c.toString());
+        check(cache.evictions() >= 1 && cache.weight() <= 1000, "eviction by weight");
+        cache.clear();
+        check(cache.weight() == 0, "clear()");
+        rejects("missing file", () -> cache.bytes(dir.resolve("missing").toString()));
+    }
+
+    /** Walk: glob and size filters across depths, cancel before each(). */
+    private static void walk_check(Std std, Path dir) throws Exception 
+    {
+        Path root = Files.createDirectories(dir.resolve("walk"));
+        Path deep = Files.createDirectories(root.resolve("s1/s2"));
+        Files.write(root.resolve("a.txt"), new byte[10]);
+        Files.write(root.resolve("s1/b.txt"), new byte[2000]);
+        Files.write(deep.resolve("c.log"), new byte[10]);
+        Files.write(deep.resolve("d.txt"), new byte[10]);
+
+        check(std.fi.Walk(root.toString()).list().size() == 4, "every file");
+        check(std.fi.Walk(root.toString()).glob("**.txt").list().size() == 3, "glob **.txt");
+        check(std.fi.Walk(root.toString()).glob("*.txt").list().size() == 1, "glob *.txt is top level only");
+        List<Path> large = std.fi.Walk(root.toString()).size(1000, Long.MAX_VALUE).list();
+        check(large.size() == 1 && large.get(0).getFileName().toString().equals("b.txt"), "size filter");
+        check(std.fi.Walk(root.toString()).older_than(3_600_000).list().isEmpty(), "age filter");
+
+        FIO.Walk w = std.fi.Walk(root.toString());
+        w.cancel();
+        check(w.each(p -> { }) == 0, "cancel before each()");
+    }
+
+    /** Columns: heap and Malloc output match the file; errors name the file line. */
+    private static void columns_check(Std std, Path dir) throws Exception 
+    {
+        Path csv = dir.resolve("columns.csv");
+        int rows = 20_000;
+        StringBuilder sb = new StringBuilder("a,b,c\n");
+        for (int i = 0; i < rows; i++)
+        {
+            sb.append(i).append(',').append(3L * i).append(',').append(i % 7 - 3).append('\n');
+            if (i % 1000 == 0)
+                sb.append('\n');
+        }
+        Files.write(csv, sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+        FIO.Columns cols = std.fi.Columns(csv.toString(), ',').skip(1).chunk(4096).threads(3);
+        double[][] d = cols.doubles();
+        check(cols.rows() == rows && cols.cols() == 3, "row and column counts");
+        long[][] l = cols.longs();
+        long[] m = cols.doubles(std.mem);
+        try 
+        {
+            for (int i = 0; i < rows; i++)
+            {
+                check(d[0][i] == i && d[1][i] == 3.0 * i && d[2][i] == i % 7 - 3, "doubles() row " + i);
+                check(l[1][i] == 3L * i && l[2][i] == i % 7 - 3, "longs() row " + i);
+                check(std.mem.rdouble(m[1] + 8L * i) == 3.0 * i, "doubles(Malloc) row " + i);
+            }
+        } finally 
+        {
+            for (long p : m)
+                std.mem.free(p);
+        }
+
+        // Line 1 is the header and every thousandth row is followed by a blank line
+        List<String> lines = new ArrayList<>(Arrays.asList(sb.toString().split("\n", -1)));
+        lines.set(4999, "1,oops,3");
+        Files.write(csv, String.join("\n", lines).getBytes(StandardCharsets.US_ASCII));
+        try 
+        {
+            std.fi.Columns(csv.toString(), ',').skip(1).chunk(4096).threads(3).longs();
+            check(false, "bad field rejected");
+        } catch (NumberFormatException e) 
+        {
+            check(e.getMessage().startsWith("Line 5000,"), "error names the file line: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tail driven by poll(): partial lines, CRLF, truncation, rotation with
+     * the old file drained first, and a sink that throws once.
+     */
+    private static void tail_check(Std std, Path dir) throws Exception 
+    {
+        Path log = dir.resolve("tail.log");
+        Files.write(log, new byte[0]);
+        List<String> got = new ArrayList<>();
+        int[] fail = { 0 };
+        FIO.Tail t = std.fi.Tail(log.toString(), false, 50, batch -> {
+            if (fail[0]-- > 0)
+                throw new IllegalStateException("sink failure");
+            got.addAll(batch);
+        });
+        try 
+        {
+            append(log, "a\nb\npart");
+            t.poll();
+            check(got.equals(List.of("a", "b")), "complete lines only");
+            append(log, "ial\r\nc\n");
+            t.poll();
+            check(got.equals(List.of("a", "b", "partial", "c")), "held-back line finished, CR dropped");
+            check(t.offset() == Files.size(log), "offset()");
+
+            Files.write(log, "t\n".getBytes(StandardCharsets.US_ASCII));
+            got.clear();
+            t.poll();
+            check(got.equals(List.of("t")), "truncation restarts at 0");
+
+            Path old = dir.resolve("tail.log.1");
+            Files.move(log, old);
+            append(old, "old1\nold2");
+            Files.write(log, "new\n".getBytes(StandardCharsets.US_ASCII));
+            got.clear();
+            t.poll();
+            check(got.equals(List.of("old1", "old2", "new")), "rotation drains the old file first: " + got);
+
+            fail[0] = 1;
+            append(log, "x\ny\n");
+            got.clear();
+            rejects("throwing sink", t::poll);
+            t.poll();
+            check(got.equals(List.of("x", "y")), "batch kept after sink failure");
+        } finally 
+        {
+            t.close();
+        }
+    }
+
+    /** Append ASCII text to a file. */
+    private static void append(Path p, String s) throws IOException 
+    {
+        Files.write(p, s.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+    }
+
+    /** Fail with what was being checked. */
+    private static void check(boolean ok, String what) 
+    {
+        checks++;
+        if (!ok)
+            throw new IllegalStateException("Check failed: " + what);
+    }
+
+    /** Fail unless the step throws. */
+    private static void rejects(String what, Step step) 
+    {
+        checks++;
+        try 
+        {
+            step.run();
+        } catch (Exception e) 
+        {
+            return;
+        }
+        throw new IllegalStateException("Check failed, nothing thrown: " + what);
+    }
+}